@@ -0,0 +1,87 @@
+#!/bin/bash
+# Compara throughput y latencia p99 entre el modo de hilos de plataforma y el de virtual threads.
+# Requiere PostgreSQL corriendo (ver setup-db.sh), hey (https://github.com/rakyll/hey), curl y jq.
+#
+# Uso: scripts/compare-threading-modes.sh [duración] [concurrencia]
+#   ej. scripts/compare-threading-modes.sh 30s 200
+
+set -euo pipefail
+
+DURATION=${1:-30s}
+CONCURRENCY=${2:-200}
+PORT=${PORT:-8080}
+BASE_URL="http://localhost:${PORT}"
+USERNAME="loadtest_$(date +%s)"
+PASSWORD="loadtest123"
+
+cd "$(dirname "$0")/.."
+
+for tool in hey curl jq; do
+    command -v "$tool" > /dev/null || { echo "❌ Falta $tool en el PATH"; exit 1; }
+done
+
+./gradlew -q bootJar
+JAR=$(ls build/libs/*.jar | grep -v plain | head -n 1)
+
+wait_for_app() {
+    for _ in $(seq 1 60); do
+        # Cualquier respuesta HTTP (incluido 401) indica que el servidor ya acepta conexiones
+        [ "$(curl -s -o /dev/null -w "%{http_code}" "${BASE_URL}/api/hello")" != "000" ] && return 0
+        sleep 1
+    done
+    echo "❌ La aplicación no arrancó"
+    return 1
+}
+
+# Imprime "req/s p99" a partir de la salida de hey
+summarize() {
+    local rps p99
+    rps=$(grep "Requests/sec" <<< "$1" | awk '{print $2}')
+    p99=$(grep "99% in" <<< "$1" | awk '{print $3 * 1000}')
+    printf "%10s req/s  p99 %8s ms\n" "$rps" "$p99"
+}
+
+run() {
+    local mode=$1 endpoint=$2
+    shift 2
+    local report
+    report=$(hey -z "$DURATION" -c "$CONCURRENCY" "$@" "${BASE_URL}${endpoint}")
+    printf "%-16s %-32s" "$mode" "$endpoint"
+    summarize "$report"
+}
+
+benchmark() {
+    local mode=$1 profile=$2
+
+    # -Djdk.tracePinnedThreads informa en la salida cualquier virtual thread fijado a su carrier
+    java -Djdk.tracePinnedThreads=short -jar "$JAR" --server.port="$PORT" \
+        ${profile:+--spring.profiles.active=$profile} > "build/loadtest-${mode}.log" 2>&1 &
+    APP_PID=$!
+    trap 'kill $APP_PID 2> /dev/null' EXIT
+    wait_for_app
+
+    curl -s -o /dev/null -X POST "${BASE_URL}/api/auth/register" -H "Content-Type: application/json" \
+        -d "{\"username\":\"${USERNAME}\",\"password\":\"${PASSWORD}\"}"
+    TOKEN=$(curl -s -X POST "${BASE_URL}/api/auth/login" -H "Content-Type: application/json" \
+        -d "{\"username\":\"${USERNAME}\",\"password\":\"${PASSWORD}\"}" | jq -r .accessToken)
+
+    # Calentamiento para que el JIT y el pool de conexiones estén listos antes de medir
+    hey -z 5s -c "$CONCURRENCY" -H "Authorization: Bearer ${TOKEN}" "${BASE_URL}/api/transactions/balance" > /dev/null
+
+    run "$mode" /api/transactions/balance -H "Authorization: Bearer ${TOKEN}"
+    run "$mode" /api/transactions/history -H "Authorization: Bearer ${TOKEN}"
+    run "$mode" /api/auth/login -m POST -T application/json \
+        -d "{\"username\":\"${USERNAME}\",\"password\":\"${PASSWORD}\"}"
+
+    kill "$APP_PID"
+    wait "$APP_PID" 2> /dev/null || true
+    trap - EXIT
+
+    if grep -q "onPinned\|<== monitors" "build/loadtest-${mode}.log"; then
+        echo "⚠️  Hubo virtual threads fijados a su carrier, ver build/loadtest-${mode}.log"
+    fi
+}
+
+echo "Duración ${DURATION}, concurrencia ${CONCURRENCY}"
+benchmark platform ""
+benchmark virtual virtual-threads
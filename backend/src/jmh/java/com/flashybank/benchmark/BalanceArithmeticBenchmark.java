@@ -0,0 +1,75 @@
+package com.flashybank.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aritmética de saldos con BigDecimal como en los motores del ledger: comprobar saldo, debitar
+ * y acreditar. amountScale permite medir montos con escala distinta a la de la columna (2),
+ * que obligan a reescalar en cada operación.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BalanceArithmeticBenchmark {
+
+    private static final int AMOUNTS = 1024;
+
+    @Param({"2", "0"})
+    public int amountScale;
+
+    private BigDecimal[] amounts;
+    private BigDecimal sender;
+    private BigDecimal receiver;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        amounts = new BigDecimal[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            amounts[i] = BigDecimal.valueOf(random.nextInt(10_000) + 1L, 2)
+                    .setScale(amountScale, RoundingMode.HALF_EVEN);
+        }
+        sender = new BigDecimal("1000000.00");
+        receiver = new BigDecimal("0.00");
+    }
+
+    // compareTo + subtract + add, igual que una transferencia en el ledger
+    @Benchmark
+    public void transfer(Blackhole blackhole) {
+        BigDecimal amount = amounts[next++ & (AMOUNTS - 1)];
+        if (sender.compareTo(amount) < 0) {
+            // Sin saldo: se invierten los papeles para que la medición no cambie de rama
+            BigDecimal empty = sender;
+            sender = receiver;
+            receiver = empty;
+        }
+        sender = sender.subtract(amount);
+        receiver = receiver.add(amount);
+        blackhole.consume(sender);
+        blackhole.consume(receiver);
+    }
+
+    // Saldo recalculado desde los movimientos
+    @Benchmark
+    public BigDecimal sumAmounts() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : amounts) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,95 @@
+package com.flashybank.benchmark;
+
+import com.flashybank.filter.JwtAuthenticationFilter;
+import com.flashybank.model.User;
+import com.flashybank.repository.UserRepository;
+import com.flashybank.repository.UserRepository.AccountStatus;
+import com.flashybank.security.AccountEpochCache;
+import com.flashybank.security.AuthenticatedUser;
+import com.flashybank.service.UserDetailsServiceImpl;
+import com.flashybank.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Una request autenticada a través de JwtAuthenticationFilter, con los repositorios simulados.
+ * Con statelessPrincipal=true el principal sale de los claims; con false se resuelve con
+ * UserDetailsServiceImpl (cache de Caffeine ya caliente).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean statelessPrincipal;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+        user.setPassword("encoded_password");
+        user.setBalance(new BigDecimal("1000.00"));
+        user.setRole("USER");
+        user.setEnabled(true);
+
+        AccountStatus status = mock(AccountStatus.class);
+        when(status.getTokenEpoch()).thenReturn(0L);
+        when(status.getEnabled()).thenReturn(true);
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername(anyString())).thenReturn(Optional.of(user));
+        when(userRepository.findAccountStatusById(anyLong())).thenReturn(Optional.of(status));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtUtil jwtUtil = new JwtUtil(JwtBenchmark.SECRET, 604_800_000L, 1_209_600_000L, meterRegistry);
+        filter = new JwtAuthenticationFilter(
+                jwtUtil,
+                new UserDetailsServiceImpl(userRepository, event -> { }, meterRegistry, 10_000, 300_000),
+                JwtBenchmark.emptyRevocationCache(meterRegistry),
+                new AccountEpochCache(userRepository, meterRegistry, 30_000, 10_000),
+                statelessPrincipal);
+        authorization = "Bearer " + jwtUtil.generateToken(
+                new AuthenticatedUser(1L, "testuser", "", "USER", true, 0L));
+    }
+
+    @Benchmark
+    public Authentication authenticatedRequest() throws ServletException, IOException {
+        // OncePerRequestFilter marca la request: cada invocación necesita una nueva
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/transactions/balance");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.flashybank.benchmark;
+
+import com.flashybank.repository.TokenBlacklistRepository;
+import com.flashybank.security.AuthenticatedUser;
+import com.flashybank.service.TokenRevocationCache;
+import com.flashybank.util.JwtClaims;
+import com.flashybank.util.JwtUtil;
+import com.flashybank.util.TokenFingerprints;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Emisión y verificación de tokens con la misma clave HMAC y expiraciones que application.yaml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtBenchmark {
+
+    static final String SECRET = "benchmark-secret-key-with-at-least-256-bits-for-hs256";
+
+    private JwtUtil jwtUtil;
+    private TokenRevocationCache revocationCache;
+    private AuthenticatedUser principal;
+    private String token;
+    private String refreshToken;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        jwtUtil = new JwtUtil(SECRET, 604_800_000L, 1_209_600_000L, meterRegistry);
+        revocationCache = emptyRevocationCache(meterRegistry);
+        principal = new AuthenticatedUser(1L, "testuser", "", "USER", true, 0L);
+        token = jwtUtil.generateToken(principal);
+        refreshToken = jwtUtil.generateRefreshToken(principal);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(principal);
+    }
+
+    @Benchmark
+    public JwtClaims parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+
+    // Camino del filtro: un solo parseo y la validación sobre los claims
+    @Benchmark
+    public boolean parseAndValidate() {
+        return jwtUtil.isTokenValid(jwtUtil.parseToken(token), principal);
+    }
+
+    // Camino de AuthService.refreshToken: un solo parseo, validación y consulta de revocación
+    @Benchmark
+    public boolean refreshTokenValidation() {
+        JwtClaims claims = jwtUtil.parseToken(refreshToken);
+        return jwtUtil.isTokenValid(claims, principal)
+                && !revocationCache.isRevoked(TokenFingerprints.of(claims, refreshToken));
+    }
+
+    /**
+     * Cache de revocación con token_blacklist vacía y el filtro ya cargado: ningún token llega a
+     * consultar la base de datos, como en producción después de la primera reconstrucción.
+     */
+    static TokenRevocationCache emptyRevocationCache(MeterRegistry meterRegistry) {
+        TokenBlacklistRepository repository = mock(TokenBlacklistRepository.class);
+        when(repository.streamFingerprintsByExpiresAtAfter(any(LocalDateTime.class)))
+                .thenAnswer(invocation -> Stream.empty());
+        TokenRevocationCache cache = new TokenRevocationCache(repository,
+                mock(PlatformTransactionManager.class), meterRegistry, 100_000, 0.001);
+        cache.rebuild();
+        return cache;
+    }
+}
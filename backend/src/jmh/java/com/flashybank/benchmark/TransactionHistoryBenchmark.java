@@ -0,0 +1,133 @@
+package com.flashybank.benchmark;
+
+import com.flashybank.dto.TransactionHistoryResponse;
+import com.flashybank.repository.TransactionRepository.HistoryEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Mapeo de las filas del historial a TransactionHistoryResponse, tal como lo hace
+ * TransactionService, y el costo de ordenarlas en memoria por (createdAt, id) descendente
+ * frente a recibirlas ya ordenadas desde la consulta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionHistoryBenchmark {
+
+    private static final Comparator<TransactionHistoryResponse> NEWEST_FIRST = Comparator
+            .comparing(TransactionHistoryResponse::getCreatedAt)
+            .thenComparing(TransactionHistoryResponse::getId)
+            .reversed();
+
+    @Param({"20", "200", "2000"})
+    public int size;
+
+    private List<HistoryEntry> rows;
+    private List<TransactionHistoryResponse> unsorted;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        rows = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            rows.add(new Row(
+                    id,
+                    "user" + random.nextInt(1_000),
+                    BigDecimal.valueOf(random.nextInt(1_000_000), 2),
+                    random.nextBoolean() ? "COMPLETED" : "PENDING",
+                    random.nextBoolean() ? "SENT" : "RECEIVED",
+                    "Pago " + id,
+                    start.plusSeconds(random.nextInt(30 * 86_400))));
+        }
+        unsorted = map(rows);
+    }
+
+    @Benchmark
+    public List<TransactionHistoryResponse> mapRows() {
+        return map(rows);
+    }
+
+    @Benchmark
+    public List<TransactionHistoryResponse> sortNewestFirst() {
+        List<TransactionHistoryResponse> sorted = new ArrayList<>(unsorted);
+        sorted.sort(NEWEST_FIRST);
+        return sorted;
+    }
+
+    @Benchmark
+    public List<TransactionHistoryResponse> mapAndSort() {
+        List<TransactionHistoryResponse> sorted = map(rows);
+        sorted.sort(NEWEST_FIRST);
+        return sorted;
+    }
+
+    private static List<TransactionHistoryResponse> map(List<HistoryEntry> rows) {
+        return rows.stream()
+                .map(h -> new TransactionHistoryResponse(
+                        h.getId(),
+                        h.getOtherUser(),
+                        h.getAmount(),
+                        h.getStatus(),
+                        h.getType(),
+                        h.getDescription(),
+                        h.getCreatedAt()
+                ))
+                .collect(Collectors.toList());
+    }
+
+    private record Row(Long id, String otherUser, BigDecimal amount, String status, String type,
+                       String description, LocalDateTime createdAt) implements HistoryEntry {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getOtherUser() {
+            return otherUser;
+        }
+
+        @Override
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        @Override
+        public String getStatus() {
+            return status;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
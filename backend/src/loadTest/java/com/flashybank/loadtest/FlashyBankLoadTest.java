@@ -0,0 +1,259 @@
+package com.flashybank.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flashybank.loadtest.LoadMix.Scenario;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga de extremo a extremo: levanta la aplicación completa sobre HTTP contra PostgreSQL
+ * y ejecuta una mezcla de login, saldo, validación de destinatario, transferencia e historial con
+ * N workers concurrentes. Informa por escenario throughput, latencias p50/p99/p999 y sentencias SQL
+ * por request, en consola y en build/reports/loadtest/report.json.
+ *
+ * Parámetros (-Ploadtest.xxx=...): concurrency, warmup-seconds, duration-seconds, users, mix,
+ * max-error-rate, jdbc-url / jdbc-username / jdbc-password (PostgreSQL local en vez del embebido).
+ * Cualquier propiedad de la aplicación se puede ajustar también con -D o el perfil loadtest.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+@Import(LoadTestConfig.class)
+class FlashyBankLoadTest {
+
+    private static final String PASSWORD = "loadtest123";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private HttpClient client;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        LoadTestDatabase.start();
+        registry.add("spring.datasource.url", LoadTestDatabase::url);
+        registry.add("spring.datasource.username", LoadTestDatabase::username);
+        registry.add("spring.datasource.password", LoadTestDatabase::password);
+    }
+
+    @Test
+    void mixedWorkload() throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ExecutorService workers = Executors.newFixedThreadPool(settings.concurrency());
+        try {
+            List<Account> accounts = registerAccounts(workers, settings.users());
+
+            run(workers, settings, accounts, settings.warmupSeconds());
+            QueryCounter.reset();
+
+            long start = System.nanoTime();
+            Map<Scenario, ScenarioStats> stats = run(workers, settings, accounts, settings.durationSeconds());
+            double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            long requests = stats.values().stream().mapToLong(ScenarioStats::requests).sum();
+            long errors = stats.values().stream().mapToLong(ScenarioStats::errors).sum();
+            report(settings, stats, elapsedSeconds);
+
+            assertTrue(requests > 0, "La prueba no ejecutó ninguna request");
+            assertTrue(errors <= requests * settings.maxErrorRate(),
+                    "Tasa de errores " + errors + "/" + requests + " mayor a " + settings.maxErrorRate());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private List<Account> registerAccounts(ExecutorService workers, int users) throws Exception {
+        // Prefijo por ejecución: con un PostgreSQL local los usuarios de corridas anteriores siguen ahí
+        String prefix = "lt" + Long.toString(System.currentTimeMillis(), 36) + "_";
+        List<Callable<Account>> registrations = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String username = prefix + i;
+            registrations.add(() -> {
+                HttpResponse<String> response = client.send(post("/api/auth/register", null, null,
+                        Map.of("username", username, "password", PASSWORD)), HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Registro de " + username + " falló: " + response.statusCode());
+                }
+                return new Account(username, objectMapper.readTree(response.body()).get("accessToken").asText());
+            });
+        }
+
+        List<Account> accounts = new ArrayList<>();
+        for (Future<Account> account : workers.invokeAll(registrations)) {
+            accounts.add(account.get());
+        }
+        return accounts;
+    }
+
+    private Map<Scenario, ScenarioStats> run(ExecutorService workers, Settings settings, List<Account> accounts,
+                                             int seconds) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Callable<Map<Scenario, ScenarioStats>>> tasks = new ArrayList<>();
+        for (int worker = 0; worker < settings.concurrency(); worker++) {
+            Account account = accounts.get(worker % accounts.size());
+            tasks.add(() -> drive(settings.mix(), account, accounts, deadline));
+        }
+
+        Map<Scenario, ScenarioStats> merged = new EnumMap<>(Scenario.class);
+        for (Future<Map<Scenario, ScenarioStats>> result : workers.invokeAll(tasks)) {
+            result.get().forEach((scenario, stats) -> merged.computeIfAbsent(scenario, s -> new ScenarioStats()).merge(stats));
+        }
+        return merged;
+    }
+
+    private Map<Scenario, ScenarioStats> drive(LoadMix mix, Account account, List<Account> accounts, long deadline)
+            throws IOException, InterruptedException {
+        Map<Scenario, ScenarioStats> stats = new EnumMap<>(Scenario.class);
+        while (System.nanoTime() < deadline) {
+            Scenario scenario = mix.next();
+            HttpRequest request = request(scenario, account, counterpart(account, accounts));
+            long start = System.nanoTime();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            long latency = System.nanoTime() - start;
+            stats.computeIfAbsent(scenario, s -> new ScenarioStats()).record(response.statusCode(), latency);
+        }
+        return stats;
+    }
+
+    private HttpRequest request(Scenario scenario, Account account, Account other) throws IOException {
+        String key = scenario.key();
+        return switch (scenario) {
+            case LOGIN -> post("/api/auth/login", key, null, Map.of("username", account.username(), "password", PASSWORD));
+            case BALANCE -> get("/api/transactions/balance", key, account.token());
+            case VALIDATE -> get("/api/users/validate/" + other.username(), key, account.token());
+            case TRANSFER -> post("/api/transactions/transfer", key, account.token(), Map.of(
+                    "receiverUsername", other.username(),
+                    "amount", BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(1, 101), 2),
+                    "description", "loadtest"));
+            case HISTORY -> get("/api/transactions/history?limit=20", key, account.token());
+        };
+    }
+
+    private static Account counterpart(Account account, List<Account> accounts) {
+        Account other = accounts.get(ThreadLocalRandom.current().nextInt(accounts.size()));
+        return other == account ? accounts.get((accounts.indexOf(account) + 1) % accounts.size()) : other;
+    }
+
+    private HttpRequest get(String path, String scenario, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(path)).GET();
+        return headers(builder, scenario, token).build();
+    }
+
+    private HttpRequest post(String path, String scenario, String token, Map<String, Object> body) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        if (token != null) {
+            // Cada transferencia es una operación nueva, como la enviaría un cliente real
+            builder.header("Idempotency-Key", UUID.randomUUID().toString());
+        }
+        return headers(builder, scenario, token).build();
+    }
+
+    private static HttpRequest.Builder headers(HttpRequest.Builder builder, String scenario, String token) {
+        if (scenario != null) {
+            builder.header(LoadTestConfig.SCENARIO_HEADER, scenario);
+        }
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private void report(Settings settings, Map<Scenario, ScenarioStats> stats, double elapsedSeconds)
+            throws IOException {
+        Map<String, Object> scenarios = new LinkedHashMap<>();
+        StringBuilder table = new StringBuilder(String.format("%n%-10s %9s %8s %10s %9s %9s %9s %11s%n",
+                "escenario", "requests", "errores", "req/s", "p50 ms", "p99 ms", "p999 ms", "SQL/request"));
+
+        for (Map.Entry<Scenario, ScenarioStats> entry : stats.entrySet()) {
+            String key = entry.getKey().key();
+            ScenarioStats s = entry.getValue();
+            double throughput = s.requests() / elapsedSeconds;
+            double queriesPerRequest = s.requests() > 0 ? (double) QueryCounter.statements(key) / s.requests() : 0;
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("requests", s.requests());
+            row.put("errors", s.errors());
+            row.put("statuses", s.statuses());
+            row.put("throughput", throughput);
+            row.put("p50Ms", s.percentileMillis(50));
+            row.put("p99Ms", s.percentileMillis(99));
+            row.put("p999Ms", s.percentileMillis(99.9));
+            row.put("queriesPerRequest", queriesPerRequest);
+            scenarios.put(key, row);
+
+            table.append(String.format("%-10s %9d %8d %10.1f %9.2f %9.2f %9.2f %11.2f%n", key, s.requests(), s.errors(),
+                    throughput, s.percentileMillis(50), s.percentileMillis(99), s.percentileMillis(99.9), queriesPerRequest));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("concurrency", settings.concurrency());
+        report.put("users", settings.users());
+        report.put("durationSeconds", elapsedSeconds);
+        report.put("mix", settings.mix().toString());
+        report.put("database", LoadTestDatabase.url());
+        report.put("scenarios", scenarios);
+
+        Path file = Path.of(settings.reportDir(), "report.json");
+        Files.createDirectories(file.getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+
+        System.out.print(table);
+        System.out.println("Reporte: " + file.toAbsolutePath());
+    }
+
+    private record Account(String username, String token) {
+    }
+
+    private record Settings(int concurrency, int warmupSeconds, int durationSeconds, int users, LoadMix mix,
+                            double maxErrorRate, String reportDir) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("loadtest.concurrency", 16),
+                    Integer.getInteger("loadtest.warmup-seconds", 10),
+                    Integer.getInteger("loadtest.duration-seconds", 30),
+                    Integer.getInteger("loadtest.users", 100),
+                    LoadMix.parse(System.getProperty("loadtest.mix",
+                            "login=5,balance=40,validate=15,transfer=25,history=15")),
+                    Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01")),
+                    System.getProperty("loadtest.report-dir", "build/reports/loadtest"));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.flashybank.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Proporción de cada escenario en la carga, por ejemplo "login=5,balance=40,validate=15,transfer=25,history=15".
+ * Los escenarios no mencionados tienen peso 0.
+ */
+final class LoadMix {
+
+    enum Scenario {
+        LOGIN, BALANCE, VALIDATE, TRANSFER, HISTORY;
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<Scenario, Integer> weights;
+    private final Scenario[] scenarios;
+    private final int[] cumulative;
+
+    private LoadMix(Map<Scenario, Integer> weights) {
+        this.weights = weights;
+        this.scenarios = weights.keySet().toArray(new Scenario[0]);
+        this.cumulative = new int[scenarios.length];
+        int total = 0;
+        for (int i = 0; i < scenarios.length; i++) {
+            total += weights.get(scenarios[i]);
+            cumulative[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("La mezcla de carga necesita al menos un escenario con peso");
+        }
+    }
+
+    static LoadMix parse(String spec) {
+        Map<Scenario, Integer> weights = new EnumMap<>(Scenario.class);
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Entrada de mezcla inválida: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Peso negativo en la mezcla: " + entry);
+            }
+            if (weight > 0) {
+                weights.put(Scenario.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        return new LoadMix(weights);
+    }
+
+    Scenario next() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (pick < cumulative[i]) {
+                return scenarios[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public String toString() {
+        return weights.toString();
+    }
+}
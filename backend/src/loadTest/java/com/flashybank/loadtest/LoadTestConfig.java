@@ -0,0 +1,52 @@
+package com.flashybank.loadtest;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+@TestConfiguration
+public class LoadTestConfig {
+
+    public static final String SCENARIO_HEADER = "X-Load-Scenario";
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof QueryCountingDataSource)) {
+                    return new QueryCountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Antes que la cadena de seguridad, para contar también las consultas que hace el filtro JWT
+    @Bean
+    public FilterRegistrationBean<Filter> loadScenarioFilter() {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) -> {
+            String scenario = request instanceof HttpServletRequest http
+                    ? http.getHeader(SCENARIO_HEADER)
+                    : null;
+            if (scenario == null) {
+                chain.doFilter(request, response);
+                return;
+            }
+            QueryCounter.enter(scenario);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                QueryCounter.exit();
+            }
+        });
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
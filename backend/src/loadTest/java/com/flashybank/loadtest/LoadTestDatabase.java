@@ -0,0 +1,63 @@
+package com.flashybank.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Base de datos de la prueba de carga. Por defecto arranca un PostgreSQL embebido (binarios reales,
+ * no un emulador), así que corren las migraciones de Liquibase, incluido el particionamiento.
+ * Con -Ploadtest.jdbc-url=... se usa en cambio un PostgreSQL local ya levantado.
+ */
+final class LoadTestDatabase {
+
+    private static String url;
+    private static String username;
+    private static String password;
+
+    private LoadTestDatabase() {
+    }
+
+    static synchronized void start() {
+        if (url != null) {
+            return;
+        }
+
+        String externalUrl = System.getProperty("loadtest.jdbc-url");
+        if (externalUrl != null && !externalUrl.isBlank()) {
+            url = externalUrl;
+            username = System.getProperty("loadtest.jdbc-username", "postgres");
+            password = System.getProperty("loadtest.jdbc-password", "root");
+            return;
+        }
+
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException ignored) {
+                    // La JVM está terminando: el directorio temporal se descarta igual
+                }
+            }));
+            url = postgres.getJdbcUrl("postgres", "postgres");
+            username = "postgres";
+            password = "postgres";
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo iniciar PostgreSQL embebido", e);
+        }
+    }
+
+    static String url() {
+        return url;
+    }
+
+    static String username() {
+        return username;
+    }
+
+    static String password() {
+        return password;
+    }
+}
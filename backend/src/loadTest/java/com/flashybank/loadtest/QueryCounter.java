@@ -0,0 +1,43 @@
+package com.flashybank.loadtest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cuenta las sentencias SQL ejecutadas por cada escenario de carga.
+ * El escenario de la request en curso se guarda en el hilo que la atiende; las sentencias de
+ * jobs en segundo plano no tienen escenario y no se cuentan.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<String> CURRENT_SCENARIO = new ThreadLocal<>();
+    private static final Map<String, LongAdder> STATEMENTS = new ConcurrentHashMap<>();
+
+    private QueryCounter() {
+    }
+
+    public static void enter(String scenario) {
+        CURRENT_SCENARIO.set(scenario);
+    }
+
+    public static void exit() {
+        CURRENT_SCENARIO.remove();
+    }
+
+    static void recordStatement() {
+        String scenario = CURRENT_SCENARIO.get();
+        if (scenario != null) {
+            STATEMENTS.computeIfAbsent(scenario, key -> new LongAdder()).increment();
+        }
+    }
+
+    public static long statements(String scenario) {
+        LongAdder count = STATEMENTS.get(scenario);
+        return count != null ? count.sum() : 0;
+    }
+
+    public static void reset() {
+        STATEMENTS.clear();
+    }
+}
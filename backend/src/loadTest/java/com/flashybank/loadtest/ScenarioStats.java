@@ -0,0 +1,68 @@
+package com.flashybank.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencias y códigos de estado de un escenario. Cada worker acumula los suyos sin sincronización
+ * y al final se combinan con {@link #merge}.
+ */
+final class ScenarioStats {
+
+    private long[] latenciesNanos = new long[1024];
+    private int size;
+    private boolean sorted;
+    private long errors;
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+
+    void record(int status, long latencyNanos) {
+        if (size == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, size * 2);
+        }
+        latenciesNanos[size++] = latencyNanos;
+        sorted = false;
+        statuses.merge(status, 1L, Long::sum);
+        if (status < 200 || status >= 300) {
+            errors++;
+        }
+    }
+
+    void merge(ScenarioStats other) {
+        if (size + other.size > latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, size + other.size);
+        }
+        System.arraycopy(other.latenciesNanos, 0, latenciesNanos, size, other.size);
+        size += other.size;
+        sorted = false;
+        errors += other.errors;
+        other.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+    }
+
+    long requests() {
+        return size;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    Map<Integer, Long> statuses() {
+        return statuses;
+    }
+
+    /**
+     * Percentil por el método nearest-rank, en milisegundos.
+     */
+    double percentileMillis(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(latenciesNanos, 0, size);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * size);
+        return latenciesNanos[Math.max(rank, 1) - 1] / 1_000_000.0;
+    }
+}
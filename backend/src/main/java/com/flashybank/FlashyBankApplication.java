@@ -2,8 +2,10 @@ package com.flashybank;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class FlashyBankApplication {
 
 	public static void main(String[] args) {
@@ -1,122 +1,174 @@
 package com.flashybank.controller;
 
 import com.flashybank.dto.InitiateTransferRequest;
+import com.flashybank.dto.TransactionHistoryPage;
 import com.flashybank.dto.TransactionHistoryResponse;
+import com.flashybank.dto.TransactionHistoryWindow;
 import com.flashybank.dto.TransactionResponse;
-import com.flashybank.model.User;
-import com.flashybank.repository.UserRepository;
+import com.flashybank.security.AuthenticatedUser;
+import com.flashybank.security.CurrentUser;
+import com.flashybank.service.TransactionExportService;
 import com.flashybank.service.TransactionService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/transactions")
-@RequiredArgsConstructor
 @CrossOrigin(origins = "*")
 public class TransactionController {
 
+    // Los reintentos con la misma clave devuelven la transacción original en lugar de crear otra
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final TransactionService transactionService;
-    private final UserRepository userRepository;
+    private final TransactionExportService transactionExportService;
+    private final long exportTimeoutMs;
+
+    public TransactionController(TransactionService transactionService,
+                                 TransactionExportService transactionExportService,
+                                 @Value("${transactions.export.timeout-ms:600000}") long exportTimeoutMs) {
+        this.transactionService = transactionService;
+        this.transactionExportService = transactionExportService;
+        this.exportTimeoutMs = exportTimeoutMs;
+    }
 
     @PostMapping("/transfer")
     public ResponseEntity<TransactionResponse> transferDirect(
-            Authentication authentication,
+            @CurrentUser AuthenticatedUser currentUser,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody InitiateTransferRequest request) {
 
-        String username = authentication.getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
         TransactionResponse response = transactionService.transferDirect(
-                user.getId(),
+                currentUser.getId(),
                 request.getReceiverUsername(),
                 request.getAmount(),
-                request.getDescription()
+                request.getDescription(),
+                idempotencyKey
         );
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
     @PostMapping("/initiate")
     public ResponseEntity<TransactionResponse> initiateTransfer(
-            Authentication authentication,
+            @CurrentUser AuthenticatedUser currentUser,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody InitiateTransferRequest request) {
 
-        String username = authentication.getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
-        TransactionResponse response = transactionService.initiateTransfer(user.getId(), request);
+        TransactionResponse response = transactionService.initiateTransfer(currentUser.getId(), request, idempotencyKey);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
     @PostMapping("/confirm/{id}")
     public ResponseEntity<TransactionResponse> confirmTransfer(
-            Authentication authentication,
+            @CurrentUser AuthenticatedUser currentUser,
             @PathVariable Long id) {
 
-        String username = authentication.getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
-        TransactionResponse response = transactionService.confirmTransfer(id, user.getId());
+        TransactionResponse response = transactionService.confirmTransfer(id, currentUser.getId());
         return ResponseEntity.ok(response);
     }
 
     @PostMapping("/cancel/{id}")
     public ResponseEntity<TransactionResponse> cancelTransfer(
-            Authentication authentication,
+            @CurrentUser AuthenticatedUser currentUser,
             @PathVariable Long id) {
 
-        String username = authentication.getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
-        TransactionResponse response = transactionService.cancelTransfer(id, user.getId());
+        TransactionResponse response = transactionService.cancelTransfer(id, currentUser.getId());
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/history")
     public ResponseEntity<List<TransactionHistoryResponse>> getTransactionHistory(
-            Authentication authentication) {
+            @CurrentUser AuthenticatedUser currentUser) {
 
-        String username = authentication.getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
-        List<TransactionHistoryResponse> history = transactionService.getTransactionHistory(user.getId());
+        List<TransactionHistoryResponse> history = transactionService.getTransactionHistory(currentUser.getId());
         return ResponseEntity.ok(history);
     }
 
+    @GetMapping(value = "/history", params = "limit")
+    public ResponseEntity<TransactionHistoryPage> getTransactionHistoryPage(
+            @CurrentUser AuthenticatedUser currentUser,
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        TransactionHistoryPage page = transactionService.getTransactionHistoryPage(
+                currentUser.getId(), cursor, limit, TransactionHistoryWindow.of(from, to));
+        return ResponseEntity.ok(page);
+    }
+
+    // Exporta el historial completo como NDJSON (por defecto) o CSV, escribiendo fila por fila
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactionHistory(
+            @CurrentUser AuthenticatedUser currentUser,
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.from(format);
+        TransactionHistoryWindow window = TransactionHistoryWindow.of(from, to);
+        StreamingResponseBody body = out -> transactionExportService.export(currentUser.getId(), exportFormat, window, out);
+        extendAsyncTimeout(request, exportTimeoutMs);
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transacciones." + exportFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    /**
+     * Cambia el timeout async solo para esta request: el interceptor corre antes de iniciar el
+     * procesamiento asíncrono del StreamingResponseBody, el resto de las respuestas async conserva
+     * spring.mvc.async.request-timeout.
+     */
+    private static void extendAsyncTimeout(HttpServletRequest request, long timeoutMs) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(TransactionController.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        if (webRequest instanceof AsyncWebRequest asyncRequest) {
+                            asyncRequest.setTimeout(timeoutMs);
+                        }
+                    }
+                });
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<TransactionResponse> getTransactionById(
-            Authentication authentication,
+            @CurrentUser AuthenticatedUser currentUser,
             @PathVariable Long id) {
 
-        String username = authentication.getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
-        TransactionResponse response = transactionService.getTransactionById(id, user.getId());
+        TransactionResponse response = transactionService.getTransactionById(id, currentUser.getId());
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/balance")
-    public ResponseEntity<Map<String, Object>> getBalance(Authentication authentication) {
-        String username = authentication.getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
+    public ResponseEntity<Map<String, Object>> getBalance(@CurrentUser AuthenticatedUser currentUser) {
         Map<String, Object> response = new HashMap<>();
-        response.put("username", username);
-        response.put("balance", user.getBalance());
+        response.put("username", currentUser.getUsername());
+        response.put("balance", transactionService.getBalance(currentUser.getId()));
         return ResponseEntity.ok(response);
     }
 }
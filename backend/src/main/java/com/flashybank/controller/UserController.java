@@ -7,13 +7,15 @@ import com.flashybank.dto.ValidateUserResponse;
 import com.flashybank.exception.UserNotFoundException;
 import com.flashybank.model.User;
 import com.flashybank.repository.UserRepository;
+import com.flashybank.security.AuthenticatedUser;
+import com.flashybank.security.CurrentUser;
+import com.flashybank.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -30,11 +32,11 @@ import java.util.stream.Collectors;
 public class UserController {
 
     private final UserRepository userRepository;
+    private final UserService userService;
 
     @GetMapping("/profile")
-    public ResponseEntity<UserProfileResponse> getProfile(Authentication authentication) {
-        String username = authentication.getName();
-        User user = userRepository.findByUsername(username)
+    public ResponseEntity<UserProfileResponse> getProfile(@CurrentUser AuthenticatedUser currentUser) {
+        User user = userRepository.findById(currentUser.getId())
                 .orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
 
         UserProfileResponse response = new UserProfileResponse(
@@ -52,25 +54,11 @@ public class UserController {
 
     @PutMapping("/profile")
     public ResponseEntity<UserProfileResponse> updateProfile(
-            Authentication authentication,
+            @CurrentUser AuthenticatedUser currentUser,
             @Valid @RequestBody UpdateProfileRequest request) {
 
-        String currentUsername = authentication.getName();
-        User user = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
-
-        // Validar que el nuevo username no esté en uso por otro usuario
-        if (!currentUsername.equals(request.getUsername())) {
-            if (userRepository.existsByUsername(request.getUsername())) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("message", "El nombre de usuario ya está en uso");
-                return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
-            }
-        }
-
-        // Actualizar solo el username (no balance, role, enabled)
-        user.setUsername(request.getUsername());
-        User updatedUser = userRepository.save(user);
+        // 409 si el username está en uso o si la cuenta cambió en paralelo (conflicto de @Version)
+        User updatedUser = userService.updateUsername(currentUser.getId(), request.getUsername());
 
         UserProfileResponse response = new UserProfileResponse(
                 updatedUser.getId(),
@@ -88,9 +76,9 @@ public class UserController {
     @GetMapping("/validate/{username}")
     public ResponseEntity<ValidateUserResponse> validateUser(
             @PathVariable String username,
-            Authentication authentication) {
+            @CurrentUser AuthenticatedUser currentUser) {
 
-        String currentUsername = authentication.getName();
+        String currentUsername = currentUser.getUsername();
 
         // Validar que no sea el mismo usuario
         if (currentUsername.equals(username)) {
@@ -0,0 +1,39 @@
+package com.flashybank.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición en el historial: la última transacción entregada, identificada por (createdAt, id).
+ * Se envía al cliente como un token opaco en base64url.
+ */
+public record TransactionHistoryCursor(LocalDateTime createdAt, Long id) {
+
+    // Primera página de una ventana: (createdAt, id) < (to, MIN) equivale a createdAt < to
+    public static TransactionHistoryCursor before(LocalDateTime to) {
+        return new TransactionHistoryCursor(to, Long.MIN_VALUE);
+    }
+
+    public static TransactionHistoryCursor of(TransactionHistoryResponse last) {
+        return new TransactionHistoryCursor(last.getCreatedAt(), last.getId());
+    }
+
+    public static TransactionHistoryCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new TransactionHistoryCursor(
+                    LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor de historial inválido");
+        }
+    }
+
+    public String encode() {
+        String value = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,16 @@
+package com.flashybank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionHistoryPage {
+
+    private List<TransactionHistoryResponse> items;
+    private String nextCursor; // null cuando no hay más páginas
+}
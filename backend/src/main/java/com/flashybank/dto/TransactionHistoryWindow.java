@@ -0,0 +1,24 @@
+package com.flashybank.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Ventana de fechas [from, to) sobre created_at para consultar el historial.
+ * Acotar la ventana permite que la base de datos consulte solo las particiones que la cubren.
+ */
+public record TransactionHistoryWindow(LocalDateTime from, LocalDateTime to) {
+
+    public static final TransactionHistoryWindow ALL = new TransactionHistoryWindow(
+            LocalDateTime.of(1970, 1, 1, 0, 0), LocalDateTime.of(9999, 12, 31, 23, 59, 59));
+
+    // Ambas fechas son inclusivas; cualquiera puede omitirse
+    public static TransactionHistoryWindow of(LocalDate from, LocalDate to) {
+        LocalDateTime start = from != null ? from.atStartOfDay() : ALL.from();
+        LocalDateTime end = to != null ? to.plusDays(1).atStartOfDay() : ALL.to();
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("La fecha inicial debe ser anterior a la fecha final");
+        }
+        return new TransactionHistoryWindow(start, end);
+    }
+}
@@ -22,12 +22,12 @@ public class TransactionResponse {
     private String description;
     private LocalDateTime createdAt;
 
-    public static TransactionResponse fromEntity(Transaction transaction, String senderUsername) {
+    public static TransactionResponse fromEntity(Transaction transaction, String senderUsername, String receiverUsername) {
         return new TransactionResponse(
                 transaction.getId(),
                 transaction.getSenderId(),
                 senderUsername,
-                transaction.getReceiverUsername(),
+                receiverUsername,
                 transaction.getAmount(),
                 transaction.getStatus(),
                 transaction.getDescription(),
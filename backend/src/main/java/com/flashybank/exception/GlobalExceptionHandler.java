@@ -1,5 +1,7 @@
 package com.flashybank.exception;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -39,6 +41,38 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(ex.getMessage(), HttpStatus.FORBIDDEN);
     }
 
+    // La misma Idempotency-Key reutilizada con otro monto, destinatario o descripción
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<Map<String, Object>> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+        return buildErrorResponse(ex.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler(UsernameAlreadyInUseException.class)
+    public ResponseEntity<Map<String, Object>> handleUsernameAlreadyInUse(UsernameAlreadyInUseException ex) {
+        return buildErrorResponse(ex.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    // Conflicto de versión: transferencia que agotó los reintentos (ledger.database.concurrency=optimistic)
+    // o cambio de perfil que chocó con una operación concurrente sobre la misma cuenta
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        return buildErrorResponse("La cuenta está siendo modificada por otra operación, intenta nuevamente", HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handlePasswordHashingUnavailable(PasswordHashingUnavailableException ex) {
+        ResponseEntity<Map<String, Object>> response = buildErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response.getBody());
+    }
+
+    // Journal del ledger en memoria saturado o detenido tras un batch fallido
+    @ExceptionHandler(LedgerUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleLedgerUnavailable(LedgerUnavailableException ex) {
+        return buildErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException ex) {
         return buildErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST);
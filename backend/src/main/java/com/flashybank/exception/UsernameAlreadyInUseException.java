@@ -0,0 +1,7 @@
+package com.flashybank.exception;
+
+public class UsernameAlreadyInUseException extends RuntimeException {
+    public UsernameAlreadyInUseException(String message) {
+        super(message);
+    }
+}
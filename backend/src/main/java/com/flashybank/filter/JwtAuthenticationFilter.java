@@ -1,29 +1,55 @@
 package com.flashybank.filter;
 
-import com.flashybank.repository.TokenBlacklistRepository;
+import com.flashybank.security.AccountEpochCache;
+import com.flashybank.security.AuthenticatedUser;
+import com.flashybank.service.TokenRevocationCache;
 import com.flashybank.service.UserDetailsServiceImpl;
+import com.flashybank.util.JwtClaims;
 import com.flashybank.util.JwtUtil;
+import com.flashybank.util.TokenFingerprints;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // Claims del token ya verificados, disponibles durante toda la request
+    public static final String CLAIMS_ATTRIBUTE = JwtClaims.class.getName();
+
     private final JwtUtil jwtUtil;
     private final UserDetailsServiceImpl userDetailsService;
-    private final TokenBlacklistRepository tokenBlacklistRepository;
+    private final TokenRevocationCache tokenRevocationCache;
+    private final AccountEpochCache accountEpochCache;
+    private final boolean statelessPrincipal;
+    // Con sesiones STATELESS es el repositorio que SecurityContextHolderFilter consulta en cada dispatch
+    private final SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil,
+                                   UserDetailsServiceImpl userDetailsService,
+                                   TokenRevocationCache tokenRevocationCache,
+                                   AccountEpochCache accountEpochCache,
+                                   @Value("${jwt.stateless-principal:true}") boolean statelessPrincipal) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.tokenRevocationCache = tokenRevocationCache;
+        this.accountEpochCache = accountEpochCache;
+        this.statelessPrincipal = statelessPrincipal;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -31,7 +57,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
+        final JwtClaims claims;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -39,29 +65,65 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        username = jwtUtil.extractUsername(jwt);
+
+        // Se verifica la firma una sola vez; el resto del filtro trabaja sobre los claims
+        try {
+            claims = jwtUtil.parseToken(jwt);
+        } catch (JwtException | IllegalArgumentException ex) {
+            // Token inválido o expirado: la request continúa sin autenticar
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        request.setAttribute(CLAIMS_ATTRIBUTE, claims);
+        final String username = claims.username();
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            // Verificar si el token está en blacklist
-            if (tokenBlacklistRepository.findByToken(jwt).isPresent()) {
+            // Verificar si el token está en blacklist (solo consulta la base ante un posible positivo)
+            if (tokenRevocationCache.isRevoked(TokenFingerprints.of(claims, jwt))) {
                 // Token está revocado, no autenticar
                 filterChain.doFilter(request, response);
                 return;
             }
 
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = resolvePrincipal(claims);
 
-            if (jwtUtil.isTokenValid(jwt, userDetails)) {
+            if (userDetails != null && jwtUtil.isTokenValid(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
                         userDetails.getAuthorities()
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(authToken);
+                SecurityContextHolder.setContext(context);
+                // El dispatch ASYNC de las respuestas en streaming no vuelve a pasar por este filtro:
+                // Spring Security recupera la autenticación guardada en la request
+                securityContextRepository.saveContext(context, request, response);
             }
         }
 
         filterChain.doFilter(request, response);
     }
+
+    private UserDetails resolvePrincipal(JwtClaims claims) {
+        if (!statelessPrincipal || !claims.hasPrincipalClaims()) {
+            return userDetailsService.loadUserByUsername(claims.username());
+        }
+
+        // Principal construido desde los claims: solo se valida la época contra la cache
+        if (!claims.enabled() || !accountEpochCache.isCurrent(claims.userId(), claims.tokenEpoch())) {
+            return null;
+        }
+
+        return new AuthenticatedUser(
+                claims.userId(),
+                claims.username(),
+                "",
+                claims.role(),
+                true,
+                claims.tokenEpoch()
+        );
+    }
 }
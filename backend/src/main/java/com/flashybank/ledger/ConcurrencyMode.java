@@ -0,0 +1,26 @@
+package com.flashybank.ledger;
+
+import java.util.Locale;
+
+/**
+ * Control de concurrencia sobre los saldos en {@link DatabaseLedgerEngine}, propiedad {@code ledger.database.concurrency}.
+ */
+public enum ConcurrencyMode {
+
+    // SELECT ... FOR UPDATE sobre ambas cuentas, siempre en orden ascendente de id para evitar deadlocks
+    PESSIMISTIC,
+
+    // Sin locks: la columna version detecta el conflicto al hacer flush y la operación completa se reintenta
+    OPTIMISTIC,
+
+    // UPDATE ... WHERE balance >= ? directo en la base de datos: sin leer el saldo ni bloquear de antemano
+    ATOMIC;
+
+    public static ConcurrencyMode from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Modo de concurrencia no soportado: " + value);
+        }
+    }
+}
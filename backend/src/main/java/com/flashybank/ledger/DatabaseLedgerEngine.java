@@ -0,0 +1,125 @@
+package com.flashybank.ledger;
+
+import com.flashybank.exception.InsufficientBalanceException;
+import com.flashybank.model.Transaction;
+import com.flashybank.model.User;
+import com.flashybank.repository.TransactionRepository;
+import com.flashybank.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Motor por defecto: lee y escribe los saldos directamente en la base de datos.
+ * En modo pesimista bloquea ambas cuentas antes de validar el saldo; en modo optimista confía en
+ * la columna version de users y {@link TransferExecutor} reintenta si hay conflicto; en modo atómico
+ * el débito es un UPDATE condicional cuyo número de filas afectadas indica si el saldo alcanzó.
+ * Debe ejecutarse dentro de una transacción en la que sender y receiver estén gestionados.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.engine", havingValue = "database", matchIfMissing = true)
+public class DatabaseLedgerEngine implements LedgerEngine {
+
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final ConcurrencyMode mode;
+    private final Timer lockWait;
+
+    public DatabaseLedgerEngine(UserRepository userRepository,
+                                TransactionRepository transactionRepository,
+                                EntityManager entityManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${ledger.database.concurrency:pessimistic}") String mode) {
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.entityManager = entityManager;
+        this.mode = ConcurrencyMode.from(mode);
+        this.lockWait = Timer.builder("ledger.lock.wait")
+                .description("Tiempo de espera para bloquear las cuentas de una transferencia")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Transaction transfer(User sender, User receiver, Transaction transaction) {
+        BigDecimal amount = transaction.getAmount();
+
+        if (mode == ConcurrencyMode.ATOMIC) {
+            return atomicTransfer(sender, receiver, transaction);
+        }
+
+        if (mode == ConcurrencyMode.PESSIMISTIC) {
+            lockInIdOrder(sender, receiver);
+        }
+
+        if (sender.getBalance().compareTo(amount) < 0) {
+            throw new InsufficientBalanceException(
+                    String.format("Saldo insuficiente. Tu saldo actual: %s, Monto a transferir: %s",
+                            sender.getBalance(), amount)
+            );
+        }
+
+        sender.setBalance(sender.getBalance().subtract(amount));
+        receiver.setBalance(receiver.getBalance().add(amount));
+
+        userRepository.save(sender);
+        userRepository.save(receiver);
+        return transactionRepository.save(transaction);
+    }
+
+    @Override
+    public Optional<Transaction> lockTransaction(Long transactionId) {
+        return transactionRepository.findByIdForUpdate(transactionId);
+    }
+
+    @Override
+    public BigDecimal getBalance(User user) {
+        return user.getBalance();
+    }
+
+    @Override
+    public boolean persistsInCallerTransaction() {
+        return true;
+    }
+
+    // Cada UPDATE bloquea su fila hasta el commit; se aplican en orden ascendente de id por la misma razón que
+    // lockInIdOrder. Si el débito no procede se lanza la excepción y el crédito ya aplicado se revierte con la transacción
+    private Transaction atomicTransfer(User sender, User receiver, Transaction transaction) {
+        BigDecimal amount = transaction.getAmount();
+        if (receiver.getId() < sender.getId()) {
+            userRepository.credit(receiver.getId(), amount);
+            debit(sender, amount);
+        } else {
+            debit(sender, amount);
+            userRepository.credit(receiver.getId(), amount);
+        }
+        return transactionRepository.save(transaction);
+    }
+
+    // El saldo cargado antes del UPDATE es justo el que el UPDATE acaba de rechazar: no se informa
+    private void debit(User sender, BigDecimal amount) {
+        if (userRepository.debitIfSufficient(sender.getId(), amount) == 0) {
+            throw new InsufficientBalanceException(
+                    String.format("Saldo insuficiente. Monto a transferir: %s", amount)
+            );
+        }
+    }
+
+    // Todas las transferencias bloquean en el mismo orden, así dos transferencias cruzadas no se esperan mutuamente
+    private void lockInIdOrder(User sender, User receiver) {
+        User first = sender.getId() < receiver.getId() ? sender : receiver;
+        User second = first == sender ? receiver : sender;
+        // refresh relee el saldo ya bajo el lock; el valor cargado antes puede estar desactualizado
+        lockWait.record(() -> {
+            entityManager.refresh(first, LockModeType.PESSIMISTIC_WRITE);
+            entityManager.refresh(second, LockModeType.PESSIMISTIC_WRITE);
+        });
+    }
+}
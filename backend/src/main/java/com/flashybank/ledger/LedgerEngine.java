@@ -0,0 +1,34 @@
+package com.flashybank.ledger;
+
+import com.flashybank.model.Transaction;
+import com.flashybank.model.User;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Aplica los movimientos de saldo de una transferencia y persiste la transacción.
+ * La implementación se elige con la propiedad {@code ledger.engine}.
+ */
+public interface LedgerEngine {
+
+    /**
+     * Debita al remitente, acredita al destinatario y guarda la transacción.
+     * Lanza {@link com.flashybank.exception.InsufficientBalanceException} si el saldo no alcanza.
+     */
+    Transaction transfer(User sender, User receiver, Transaction transaction);
+
+    /**
+     * Carga una transacción para confirmarla o cancelarla, impidiendo que otra confirmación o cancelación
+     * la procese a la vez hasta que termine la transacción actual.
+     */
+    Optional<Transaction> lockTransaction(Long transactionId);
+
+    BigDecimal getBalance(User user);
+
+    /**
+     * Indica si la transferencia se persiste en la transacción del llamador. Si no, lo que el llamador
+     * escriba en su transacción (por ejemplo una Idempotency-Key) no es atómico con el movimiento.
+     */
+    boolean persistsInCallerTransaction();
+}
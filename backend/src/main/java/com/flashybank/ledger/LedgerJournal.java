@@ -0,0 +1,275 @@
+package com.flashybank.ledger;
+
+import com.flashybank.exception.LedgerUnavailableException;
+import com.flashybank.model.Transaction;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Etapa de persistencia del ledger en memoria.
+ * Agrupa muchas transferencias en un único commit con batches JDBC (group commit) y completa
+ * el future de cada llamador cuando su batch ya es durable. El batch se escribe al llegar a
+ * {@code ledger.journal.batch-size} entradas o al cumplirse {@code ledger.journal.max-delay-ms}.
+ * Si un batch falla, el journal se detiene: rechaza el trabajo pendiente y el nuevo hasta reiniciar,
+ * porque los saldos en memoria ya no coinciden con los persistidos.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ledger.engine", havingValue = "in-memory")
+public class LedgerJournal implements SmartInitializingSingleton {
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE users SET balance = balance + ?, version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO transactions (id, sender_id, receiver_id, amount, status, description, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_STATUS_SQL = "UPDATE transactions SET status = ? WHERE id = ?";
+
+    private static final String TRANSACTION_SEQUENCE = "transactions_seq";
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<JournalEntry> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Thread writer;
+    private PooledIdAllocator transactionIds;
+    private volatile boolean running = true;
+    private volatile LedgerUnavailableException failure;
+
+    public LedgerJournal(DataSourceProperties dataSourceProperties,
+                         @Value("${ledger.journal.batch-size:500}") int batchSize,
+                         @Value("${ledger.journal.max-delay-ms:5}") long maxDelayMs,
+                         @Value("${ledger.journal.queue-capacity:10000}") int queueCapacity) {
+        // Pool propio: los hilos de request esperan el batch con su conexión tomada y no deben
+        // dejar al escritor sin conexiones
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.dataSource.setPoolName("ledger-journal");
+        this.dataSource.setMaximumPoolSize(1);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.writer = new Thread(this::runWriter, "ledger-journal-writer");
+        this.writer.setDaemon(true);
+    }
+
+    // Después de crear todos los singletons: Liquibase (o Hibernate en los tests) ya creó la secuencia
+    @Override
+    public void afterSingletonsInstantiated() {
+        start();
+    }
+
+    void start() {
+        // El tamaño de bloque se lee de la secuencia: uno distinto al de Hibernate repetiría ids
+        transactionIds = PooledIdAllocator.forSequence(jdbcTemplate, TRANSACTION_SEQUENCE);
+        writer.start();
+    }
+
+    /**
+     * Encola la transacción junto con el débito y el crédito que produjo.
+     * El future se completa con la transacción (ya con id) cuando su batch hizo commit. Si el journal
+     * está saturado o detenido, el future ya está completado con {@link LedgerUnavailableException}.
+     */
+    public CompletableFuture<Transaction> submit(Transaction transaction, Long debitedId, Long creditedId) {
+        JournalEntry entry = new JournalEntry(transaction, debitedId, creditedId, new CompletableFuture<>());
+        LedgerUnavailableException rejection = failure;
+        if (rejection == null && !running) {
+            rejection = new LedgerUnavailableException("El journal del ledger se está deteniendo");
+        }
+        if (rejection == null && !queue.offer(entry)) {
+            rejection = new LedgerUnavailableException("El journal del ledger está saturado, intenta nuevamente");
+        }
+        if (rejection != null) {
+            entry.future().completeExceptionally(rejection);
+        }
+        return entry.future();
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Detiene el journal de forma permanente. Se usa cuando ya no se sabe qué quedó persistido
+     * (un batch falló o un llamador dejó de esperarlo): desde ese momento la base de datos es la única
+     * fuente de verdad y el ledger en memoria necesita reiniciarse para volver a cargarla.
+     */
+    public synchronized void fail(String reason, Throwable cause) {
+        if (failure == null) {
+            failure = new LedgerUnavailableException(
+                    "El ledger dejó de aceptar transferencias (" + reason + "); es necesario reiniciarlo", cause);
+            log.error("Journal del ledger detenido: {}", reason, cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+
+        // Lo que no alcanzó a escribirse no queda esperando para siempre
+        List<JournalEntry> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        leftovers.forEach(entry -> entry.future().completeExceptionally(
+                new LedgerUnavailableException("El journal del ledger se detuvo antes de persistir la transferencia")));
+        dataSource.close();
+    }
+
+    // Entradas encoladas que el escritor todavía no tomó
+    int pendingEntries() {
+        return queue.size();
+    }
+
+    private void runWriter() {
+        List<JournalEntry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                JournalEntry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                queue.drainTo(batch, batchSize - batch.size());
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    JournalEntry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+
+                LedgerUnavailableException rejection = failure;
+                if (rejection != null) {
+                    batch.forEach(entry -> entry.future().completeExceptionally(rejection));
+                } else {
+                    writeBatch(batch);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                batch.forEach(entry -> entry.future().completeExceptionally(ex));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<JournalEntry> batch) {
+        // Los deltas son conmutativos: se agrupan por cuenta y se aplica uno solo por usuario.
+        // TreeMap: las filas de users se bloquean en orden ascendente de id, como en DatabaseLedgerEngine
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        List<Transaction> inserts = new ArrayList<>();
+        List<Transaction> updates = new ArrayList<>();
+
+        for (JournalEntry entry : batch) {
+            Transaction transaction = entry.transaction();
+            deltas.merge(entry.debitedId(), transaction.getAmount().negate(), BigDecimal::add);
+            deltas.merge(entry.creditedId(), transaction.getAmount(), BigDecimal::add);
+            if (transaction.getId() == null) {
+                inserts.add(transaction);
+            } else {
+                updates.add(transaction);
+            }
+        }
+        updates.sort(Comparator.comparing(Transaction::getId));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                applyDeltas(deltas);
+                insertTransactions(inserts);
+                updateStatuses(updates);
+            });
+            batch.forEach(entry -> entry.future().complete(entry.transaction()));
+        } catch (RuntimeException ex) {
+            fail("no se pudo persistir un batch de " + batch.size() + " transferencias", ex);
+            LedgerUnavailableException rejection = failure;
+            batch.forEach(entry -> entry.future().completeExceptionally(rejection));
+        }
+    }
+
+    private void applyDeltas(Map<Long, BigDecimal> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((userId, amount) -> args.add(new Object[]{amount, userId}));
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, args);
+    }
+
+    private void insertTransactions(List<Transaction> inserts) {
+        if (inserts.isEmpty()) {
+            return;
+        }
+
+        // Los ids salen de bloques ya reservados de la secuencia: el INSERT no necesita devolver claves
+        LocalDateTime now = LocalDateTime.now();
+        for (Transaction transaction : inserts) {
+            transaction.setId(transactionIds.nextId());
+            transaction.setCreatedAt(now);
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Transaction transaction = inserts.get(i);
+                ps.setLong(1, transaction.getId());
+                ps.setLong(2, transaction.getSenderId());
+                ps.setLong(3, transaction.getReceiverId());
+                ps.setBigDecimal(4, transaction.getAmount());
+                ps.setString(5, transaction.getStatus());
+                ps.setString(6, transaction.getDescription());
+                ps.setTimestamp(7, Timestamp.valueOf(transaction.getCreatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return inserts.size();
+            }
+        });
+    }
+
+    private void updateStatuses(List<Transaction> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(updates.size());
+        updates.forEach(transaction -> args.add(new Object[]{transaction.getStatus(), transaction.getId()}));
+        jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, args);
+    }
+
+    private record JournalEntry(Transaction transaction, Long debitedId, Long creditedId,
+                                CompletableFuture<Transaction> future) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.flashybank.ledger;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asigna ids desde una secuencia de la base de datos usando la estrategia pooled-lo:
+ * cada nextval reserva el bloque [valor, valor + blockSize). Es la misma estrategia que usa
+ * Hibernate, por lo que ambos pueden compartir la secuencia sin colisiones.
+ * El tamaño de bloque debe coincidir con el INCREMENT BY de la secuencia; {@link #forSequence} lo lee de ella.
+ */
+public class PooledIdAllocator {
+
+    private static final String INCREMENT_SQL =
+            "SELECT increment FROM information_schema.sequences WHERE lower(sequence_name) = lower(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nextValueSql;
+    private final int blockSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long limit;
+
+    public PooledIdAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nextValueSql = "SELECT nextval('" + sequenceName + "')";
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Crea el asignador con el INCREMENT BY actual de la secuencia. Falla si la secuencia no existe.
+     */
+    public static PooledIdAllocator forSequence(JdbcTemplate jdbcTemplate, String sequenceName) {
+        List<Long> increments = jdbcTemplate.queryForList(INCREMENT_SQL, Long.class, sequenceName);
+        if (increments.isEmpty()) {
+            throw new IllegalStateException("No existe la secuencia " + sequenceName);
+        }
+        if (new HashSet<>(increments).size() > 1) {
+            throw new IllegalStateException("La secuencia " + sequenceName + " existe en varios schemas con distinto INCREMENT BY");
+        }
+        return new PooledIdAllocator(jdbcTemplate, sequenceName, increments.get(0).intValue());
+    }
+
+    public long nextId() {
+        lock.lock();
+        try {
+            if (next >= limit) {
+                Long low = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+                next = low;
+                limit = low + blockSize;
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.flashybank.ledger;
+
+import com.flashybank.exception.InsufficientBalanceException;
+import com.flashybank.exception.InvalidTransactionStatusException;
+import com.flashybank.exception.LedgerUnavailableException;
+import com.flashybank.model.Transaction;
+import com.flashybank.model.User;
+import com.flashybank.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mantiene los saldos en memoria y los protege con locks por franja (stripe) según el id de usuario.
+ * Cada transferencia se persiste en el siguiente batch de {@link LedgerJournal} y el llamador
+ * espera a que ese batch sea durable, como máximo {@code ledger.journal.timeout-ms}.
+ * No hay compensación en memoria: si un batch falla o no se confirma a tiempo el journal se detiene y
+ * los saldos se vuelven a leer de la base de datos hasta reiniciar.
+ * Pensado para un único nodo: ningún otro proceso debe modificar users.balance mientras está activo.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.engine", havingValue = "in-memory")
+public class StripedLockLedgerEngine implements LedgerEngine {
+
+    private final LedgerJournal journal;
+    private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final ReentrantLock[] stripes;
+    private final Map<Long, BigDecimal> balances = new ConcurrentHashMap<>();
+    private final Set<Long> claimedTransactions = ConcurrentHashMap.newKeySet();
+    private final long journalTimeoutMs;
+
+    public StripedLockLedgerEngine(LedgerJournal journal,
+                                   TransactionRepository transactionRepository,
+                                   EntityManager entityManager,
+                                   @Value("${ledger.stripes:1024}") int stripeCount,
+                                   @Value("${ledger.journal.timeout-ms:5000}") long journalTimeoutMs) {
+        this.journal = journal;
+        this.transactionRepository = transactionRepository;
+        this.entityManager = entityManager;
+        this.journalTimeoutMs = journalTimeoutMs;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public Transaction transfer(User sender, User receiver, Transaction transaction) {
+        CompletableFuture<Transaction> persisted = move(sender, receiver, transaction);
+        try {
+            return persisted.orTimeout(journalTimeoutMs, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof TimeoutException timeout) {
+                // El batch todavía puede hacer commit o fallar: la memoria deja de ser confiable
+                journal.fail("una transferencia esperó más de " + journalTimeoutMs + " ms su batch", timeout);
+                throw new LedgerUnavailableException(
+                        "No se pudo confirmar la transferencia a tiempo, revisa tu historial antes de reintentar", timeout);
+            }
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+
+    /**
+     * Sin SELECT ... FOR UPDATE: el journal escribe el nuevo estado desde su propia conexión y esperaría
+     * ese lock hasta el commit de esta transacción, que a su vez espera al journal. La exclusión entre
+     * confirmaciones y cancelaciones se hace en memoria, igual que los saldos (un único nodo).
+     */
+    @Override
+    public Optional<Transaction> lockTransaction(Long transactionId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("lockTransaction requiere una transacción activa");
+        }
+        if (!claimedTransactions.add(transactionId)) {
+            throw new InvalidTransactionStatusException("La transacción ya se está procesando");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                claimedTransactions.remove(transactionId);
+            }
+        });
+
+        // Desacoplada del contexto de persistencia: el cambio de estado lo escribe el journal, no el flush del commit
+        Optional<Transaction> transaction = transactionRepository.findById(transactionId);
+        transaction.ifPresent(entityManager::detach);
+        return transaction;
+    }
+
+    @Override
+    public BigDecimal getBalance(User user) {
+        // Con el journal detenido solo la base de datos sabe qué quedó persistido
+        if (journal.isFailed()) {
+            return user.getBalance();
+        }
+        return balances.getOrDefault(user.getId(), user.getBalance());
+    }
+
+    // El journal hace commit en su propia conexión, independiente de la transacción del llamador
+    @Override
+    public boolean persistsInCallerTransaction() {
+        return false;
+    }
+
+    // Encola la transferencia bajo los mismos locks que mueven el saldo: si el journal la rechaza
+    // (saturado o detenido) la memoria no se toca y no hay nada que revertir
+    private CompletableFuture<Transaction> move(User from, User to, Transaction transaction) {
+        BigDecimal amount = transaction.getAmount();
+        int fromStripe = stripeIndex(from.getId());
+        int toStripe = stripeIndex(to.getId());
+
+        // Los locks se toman siempre en orden ascendente de franja para evitar deadlocks
+        ReentrantLock first = stripes[Math.min(fromStripe, toStripe)];
+        ReentrantLock second = stripes[Math.max(fromStripe, toStripe)];
+
+        first.lock();
+        second.lock();
+        try {
+            BigDecimal fromBalance = balanceOf(from);
+            if (fromBalance.compareTo(amount) < 0) {
+                throw new InsufficientBalanceException(
+                        String.format("Saldo insuficiente. Tu saldo actual: %s, Monto a transferir: %s",
+                                fromBalance, amount)
+                );
+            }
+
+            CompletableFuture<Transaction> persisted = journal.submit(transaction, from.getId(), to.getId());
+            if (!persisted.isCompletedExceptionally()) {
+                balances.put(from.getId(), fromBalance.subtract(amount));
+                balances.put(to.getId(), balanceOf(to).add(amount));
+            }
+            return persisted;
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+    }
+
+    // La primera vez que se toca una cuenta se toma el saldo leído de la base de datos
+    private BigDecimal balanceOf(User user) {
+        return balances.computeIfAbsent(user.getId(), id -> user.getBalance());
+    }
+
+    private int stripeIndex(Long userId) {
+        return Math.floorMod(userId.hashCode(), stripes.length);
+    }
+}
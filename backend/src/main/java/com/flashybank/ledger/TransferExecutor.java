@@ -0,0 +1,88 @@
+package com.flashybank.ledger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta una operación que mueve saldos en su propia transacción.
+ * En modo optimista un conflicto de versión invalida toda la transacción, así que se reintenta
+ * la operación completa (releyendo los saldos) hasta max-attempts veces.
+ */
+@Slf4j
+@Component
+public class TransferExecutor {
+
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrencyMode mode;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final Timer duration;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public TransferExecutor(PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${ledger.database.concurrency:pessimistic}") String mode,
+                            @Value("${ledger.database.optimistic.max-attempts:5}") int maxAttempts,
+                            @Value("${ledger.database.optimistic.backoff-ms:5}") long backoffMs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mode = ConcurrencyMode.from(mode);
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.duration = Timer.builder("ledger.transfer.duration")
+                .description("Duración de las transferencias, incluidos los reintentos")
+                .tag("mode", this.mode.name().toLowerCase())
+                .register(meterRegistry);
+        this.retries = Counter.builder("ledger.optimistic.retries")
+                .description("Reintentos por conflicto de versión en modo optimista")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("ledger.optimistic.exhausted")
+                .description("Transferencias abandonadas tras agotar los reintentos")
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(Supplier<T> operation) {
+        return duration.record(() -> executeWithRetry(operation));
+    }
+
+    private <T> T executeWithRetry(Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> operation.get());
+            } catch (OptimisticLockingFailureException ex) {
+                if (mode != ConcurrencyMode.OPTIMISTIC) {
+                    throw ex;
+                }
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw ex;
+                }
+                retries.increment();
+                log.debug("Conflicto de versión en transferencia, reintento {} de {}", attempt, maxAttempts - 1);
+                backoff(attempt);
+            }
+        }
+    }
+
+    // Espera creciente para que los reintentos concurrentes no vuelvan a chocar al mismo tiempo
+    private void backoff(int attempt) {
+        if (backoffMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(backoffMs * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Transferencia interrumpida", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.flashybank.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_keys_user_key", columnNames = {"user_id", "idempotency_key"}),
+        indexes = @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "idempotency_keys_seq")
+    // Igual a id.block.size (db.changelog-master.yaml); ante un desajuste manda el INCREMENT BY de la secuencia
+    @SequenceGenerator(name = "idempotency_keys_seq", sequenceName = "idempotency_keys_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Valor de la cabecera Idempotency-Key; solo es único por usuario
+    @Column(name = "idempotency_key", nullable = false)
+    private String key;
+
+    // Sin FK: la clave primaria de transactions incluye created_at por el particionado (migración 008)
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    // Huella de los datos de la petición: la misma clave con otro monto o destinatario se rechaza
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -9,18 +9,21 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "token_blacklist")
+@Table(name = "token_blacklist", indexes = @Index(name = "idx_token_blacklist_expires_at", columnList = "expires_at"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class TokenBlacklist {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "token_blacklist_seq")
+    // Igual a id.block.size (db.changelog-master.yaml); ante un desajuste manda el INCREMENT BY de la secuencia
+    @SequenceGenerator(name = "token_blacklist_seq", sequenceName = "token_blacklist_seq", allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false, unique = true, length = 1000)
-    private String token;
+    // SHA-256 del jti del token (o del token completo si no tiene jti), ver TokenFingerprints
+    @Column(nullable = false, unique = true, length = 32)
+    private byte[] fingerprint;
 
     @Column(name = "revoked_at", nullable = false)
     private LocalDateTime revokedAt;
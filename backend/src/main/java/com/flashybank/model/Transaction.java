@@ -10,21 +10,27 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_sender_history", columnList = "sender_id, created_at DESC, id DESC"),
+        @Index(name = "idx_transactions_receiver_history", columnList = "receiver_id, created_at DESC, id DESC")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    // Igual a id.block.size (db.changelog-master.yaml); ante un desajuste manda el INCREMENT BY de la secuencia
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "sender_id", nullable = false)
     private Long senderId;
 
-    @Column(name = "receiver_username", nullable = false, length = 50)
-    private String receiverUsername;
+    // FK a users(id): el historial sigue al usuario aunque cambie su username
+    @Column(name = "receiver_id", nullable = false)
+    private Long receiverId;
 
     @Column(nullable = false, precision = 19, scale = 4)
     private BigDecimal amount;
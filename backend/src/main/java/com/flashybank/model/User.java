@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -12,13 +13,16 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "users")
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    // Igual a id.block.size (db.changelog-master.yaml); ante un desajuste manda el INCREMENT BY de la secuencia
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false, length = 50)
@@ -36,6 +40,15 @@ public class User {
     @Column(nullable = false)
     private Boolean enabled = true;
 
+    // Se incrementa al cambiar username, rol o enabled para invalidar los tokens emitidos antes
+    @Column(name = "token_epoch", nullable = false)
+    private Long tokenEpoch = 0L;
+
+    // Control optimista de concurrencia sobre el saldo (ledger.database.concurrency=optimistic)
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,23 @@
+package com.flashybank.repository;
+
+import com.flashybank.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    Optional<IdempotencyKey> findByUserIdAndKey(Long userId, String key);
+
+    // Borra como máximo limit claves anteriores a date en un solo DELETE, sin cargar las entidades
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM idempotency_keys WHERE id IN " +
+            "(SELECT id FROM idempotency_keys WHERE created_at < :date ORDER BY created_at LIMIT :limit)",
+            nativeQuery = true)
+    int deleteCreatedBeforeChunk(LocalDateTime date, int limit);
+}
@@ -0,0 +1,102 @@
+package com.flashybank.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Consultas sobre tablas particionadas por rango en PostgreSQL.
+ * Lee los límites de cada partición desde el catálogo (pg_inherits / relpartbound),
+ * por lo que no depende de ninguna convención de nombres.
+ */
+@Repository
+public class PartitionRepository {
+
+    private static final String FIND_PARTITIONS_SQL = """
+            SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = ? AND p.relkind = 'p' AND pg_table_is_visible(p.oid)
+            ORDER BY c.relname
+            """;
+
+    // FOR VALUES FROM ('2025-01-01 00:00:00') TO ('2025-02-01 00:00:00')
+    static final Pattern LOWER_BOUND = Pattern.compile("FROM \\('([^']+)'\\)");
+    static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Particiones de rango de la tabla. Los límites MINVALUE / MAXVALUE y la partición DEFAULT
+     * se devuelven como null.
+     */
+    public List<RangePartition> findRangePartitions(String parentTable) {
+        return jdbcTemplate.query(FIND_PARTITIONS_SQL,
+                (rs, rowNum) -> new RangePartition(rs.getString(1),
+                        parseBound(LOWER_BOUND, rs.getString(2)), parseBound(UPPER_BOUND, rs.getString(2))),
+                parentTable);
+    }
+
+    public void createRangePartition(String parentTable, String partition, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + quote(partition) + " PARTITION OF " + quote(parentTable)
+                + " FOR VALUES FROM ('" + Timestamp.valueOf(from) + "') TO ('" + Timestamp.valueOf(to) + "')");
+    }
+
+    /**
+     * Separa la partición y la mueve a otro schema en una sola transacción: si algo falla la partición
+     * sigue adjunta y el próximo mantenimiento lo vuelve a intentar, en lugar de quedar separada en el
+     * schema original. No copia filas, pero DETACH bloquea la tabla padre por completo hasta el commit,
+     * por eso se limita la espera por ese lock.
+     */
+    @Transactional
+    public void archivePartition(String parentTable, String partition, String schema) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+        detachPartition(parentTable, partition);
+        jdbcTemplate.execute("ALTER TABLE " + quote(partition) + " SET SCHEMA " + quote(schema));
+    }
+
+    // Las filas quedan en la tabla separada
+    private void detachPartition(String parentTable, String partition) {
+        jdbcTemplate.execute("ALTER TABLE " + quote(parentTable) + " DETACH PARTITION " + quote(partition));
+    }
+
+    static LocalDateTime parseBound(Pattern bound, String boundExpression) {
+        if (boundExpression == null) {
+            return null;
+        }
+        Matcher matcher = bound.matcher(boundExpression);
+        if (!matcher.find()) {
+            return null;
+        }
+        String value = matcher.group(1);
+        if (value.length() == 10) {
+            return LocalDate.parse(value).atStartOfDay();
+        }
+        // Descarta fracciones de segundo y zona horaria: basta con la precisión de segundos
+        return LocalDateTime.parse(value.substring(0, 19).replace(' ', 'T'));
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    public record RangePartition(String name, LocalDateTime lowerBound, LocalDateTime upperBound) {
+
+        // Límites null = sin cota (MINVALUE / MAXVALUE)
+        public boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return (lowerBound == null || lowerBound.isBefore(to)) && (upperBound == null || upperBound.isAfter(from));
+        }
+    }
+}
@@ -2,15 +2,34 @@ package com.flashybank.repository;
 
 import com.flashybank.model.TokenBlacklist;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TokenBlacklistRepository extends JpaRepository<TokenBlacklist, Long> {
 
-    Optional<TokenBlacklist> findByToken(String token);
+    Optional<TokenBlacklist> findByFingerprint(byte[] fingerprint);
 
-    void deleteAllByExpiresAtBefore(LocalDateTime date);
+    boolean existsByFingerprint(byte[] fingerprint);
+
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM TokenBlacklist t WHERE t.expiresAt < :date")
+    int deleteAllByExpiresAtBefore(LocalDateTime date);
+
+    // Borra como máximo limit filas expiradas en un solo DELETE, sin cargar las entidades
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM token_blacklist WHERE id IN " +
+            "(SELECT id FROM token_blacklist WHERE expires_at < :date ORDER BY expires_at LIMIT :limit)",
+            nativeQuery = true)
+    int deleteExpiredChunk(LocalDateTime date, int limit);
+
+    long countByExpiresAtAfter(LocalDateTime date);
+
+    @Query("SELECT t.fingerprint FROM TokenBlacklist t WHERE t.expiresAt > :date")
+    Stream<byte[]> streamFingerprintsByExpiresAtAfter(LocalDateTime date);
 }
@@ -1,15 +1,111 @@
 package com.flashybank.repository;
 
 import com.flashybank.model.Transaction;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    // Bloquea la fila para que dos confirmaciones o cancelaciones concurrentes no vean ambas el estado PENDING
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.id = :id")
+    Optional<Transaction> findByIdForUpdate(Long id);
+
     List<Transaction> findBySenderIdOrderByCreatedAtDesc(Long senderId);
 
-    List<Transaction> findByReceiverUsernameOrderByCreatedAtDesc(String receiverUsername);
+    List<Transaction> findByReceiverIdOrderByCreatedAtDesc(Long receiverId);
+
+    /**
+     * Historial (enviadas y recibidas) anterior a la posición (createdAt, id), del más reciente al más antiguo.
+     * Cada rama del UNION ALL recorre su propio índice (sender_id / receiver_id, created_at, id)
+     * y corta en limit filas, por lo que el costo no depende de cuántas transacciones tenga el usuario.
+     * El username de la contraparte se resuelve con un join por id, que queda fuera del límite.
+     * Los predicados simples sobre created_at (la comparación de filas no sirve para esto) permiten
+     * que PostgreSQL descarte las particiones fuera de la ventana [from, createdAt].
+     */
+    @Query(value = """
+            SELECT h.id, COALESCE(u.username, 'Desconocido') AS other_user, h.amount, h.status, h.type,
+                   h.description, h.created_at
+            FROM (
+                (SELECT t.id, t.receiver_id AS other_user_id, t.amount, t.status, 'SENT' AS type,
+                        t.description, t.created_at
+                 FROM transactions t
+                 WHERE t.sender_id = :userId
+                   AND t.created_at >= :from AND t.created_at <= :createdAt
+                   AND (t.created_at, t.id) < (:createdAt, :id)
+                 ORDER BY t.created_at DESC, t.id DESC
+                 LIMIT :limit)
+                UNION ALL
+                (SELECT t.id, t.sender_id AS other_user_id, t.amount, t.status, 'RECEIVED' AS type,
+                        t.description, t.created_at
+                 FROM transactions t
+                 WHERE t.receiver_id = :userId
+                   AND t.created_at >= :from AND t.created_at <= :createdAt
+                   AND (t.created_at, t.id) < (:createdAt, :id)
+                 ORDER BY t.created_at DESC, t.id DESC
+                 LIMIT :limit)
+                ORDER BY created_at DESC, id DESC
+                LIMIT :limit
+            ) h
+            LEFT JOIN users u ON u.id = h.other_user_id
+            ORDER BY h.created_at DESC, h.id DESC
+            """, nativeQuery = true)
+    List<HistoryEntry> findHistoryBefore(Long userId, LocalDateTime from, LocalDateTime createdAt, Long id, int limit);
+
+    /**
+     * Historial en la ventana [from, to) para exportación, leído con un cursor de solo avance: el driver
+     * trae las filas en bloques de fetch size en lugar de materializar el resultado. Debe consumirse
+     * dentro de una transacción (PostgreSQL solo usa cursores con autocommit desactivado).
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = """
+            SELECT h.id, COALESCE(u.username, 'Desconocido') AS other_user, h.amount, h.status, h.type,
+                   h.description, h.created_at
+            FROM (
+                SELECT t.id, t.receiver_id AS other_user_id, t.amount, t.status, 'SENT' AS type,
+                       t.description, t.created_at
+                FROM transactions t
+                WHERE t.sender_id = :userId AND t.created_at >= :from AND t.created_at < :to
+                UNION ALL
+                SELECT t.id, t.sender_id AS other_user_id, t.amount, t.status, 'RECEIVED' AS type,
+                       t.description, t.created_at
+                FROM transactions t
+                WHERE t.receiver_id = :userId AND t.created_at >= :from AND t.created_at < :to
+            ) h
+            LEFT JOIN users u ON u.id = h.other_user_id
+            ORDER BY h.created_at DESC, h.id DESC
+            """, nativeQuery = true)
+    Stream<HistoryEntry> streamHistory(Long userId, LocalDateTime from, LocalDateTime to);
+
+    interface HistoryEntry {
+        Long getId();
+
+        String getOtherUser();
+
+        BigDecimal getAmount();
+
+        String getStatus();
+
+        String getType();
+
+        String getDescription();
+
+        LocalDateTime getCreatedAt();
+    }
 }
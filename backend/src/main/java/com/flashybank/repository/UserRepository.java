@@ -4,8 +4,11 @@ import com.flashybank.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +19,36 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
 
     Page<User> findAllByUsernameContainingIgnoreCase(String username, Pageable pageable);
+
+    @Query("SELECT u.username FROM User u WHERE u.id = :id")
+    Optional<String> findUsernameById(Long id);
+
+    @Query("SELECT u.tokenEpoch AS tokenEpoch, u.enabled AS enabled FROM User u WHERE u.id = :id")
+    Optional<AccountStatus> findAccountStatusById(Long id);
+
+    /**
+     * Debita en una sola sentencia solo si el saldo alcanza. Devuelve 0 si no hay saldo suficiente.
+     * No toca el contexto de persistencia: la entidad cargada conserva el saldo anterior y,
+     * mientras no se modifique, no se vuelve a escribir.
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.balance = u.balance - :amount, u.version = u.version + 1, u.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE u.id = :id AND u.balance >= :amount")
+    int debitIfSufficient(Long id, BigDecimal amount);
+
+    @Modifying
+    @Query("UPDATE User u SET u.balance = u.balance + :amount, u.version = u.version + 1, u.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE u.id = :id")
+    int credit(Long id, BigDecimal amount);
+
+    // Solo toca la contraseña: no incrementa version ni compite con los UPDATE de saldo
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(String username, String password);
+
+    interface AccountStatus {
+        Long getTokenEpoch();
+
+        Boolean getEnabled();
+    }
 }
@@ -0,0 +1,61 @@
+package com.flashybank.security;
+
+import com.flashybank.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Cache pequeña del estado de cada cuenta (época de tokens y enabled) para validar
+ * principals sin estado. Los tokens emitidos con una época anterior quedan invalidados.
+ * Cache Caffeine acotada por tamaño y TTL, como la de UserDetailsServiceImpl.
+ */
+@Component
+public class AccountEpochCache {
+
+    private static final CachedStatus MISSING = new CachedStatus(-1L, false);
+
+    private final UserRepository userRepository;
+    private final Cache<Long, CachedStatus> entries;
+
+    public AccountEpochCache(UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${jwt.epoch-cache.ttl-ms:30000}") long ttlMillis,
+                             @Value("${jwt.epoch-cache.max-entries:10000}") long maxEntries) {
+        this.userRepository = userRepository;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "accountEpochs");
+    }
+
+    public boolean isCurrent(Long userId, long tokenEpoch) {
+        // Una cuenta inexistente se cachea como deshabilitada: sus tokens no deben consultar la base en cada request
+        CachedStatus status = entries.get(userId, id -> userRepository.findAccountStatusById(id)
+                .map(s -> new CachedStatus(s.getTokenEpoch(), Boolean.TRUE.equals(s.getEnabled())))
+                .orElse(MISSING));
+
+        return status.enabled() && status.tokenEpoch() == tokenEpoch;
+    }
+
+    public void invalidate(Long userId) {
+        entries.invalidate(userId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserAccountChanged(UserAccountChangedEvent event) {
+        invalidate(event.userId());
+    }
+
+    private record CachedStatus(long tokenEpoch, boolean enabled) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.flashybank.security;
+
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collections;
+
+/**
+ * Principal autenticado de FlashyBank. Además de los datos de Spring Security lleva el id,
+ * el rol y la época de tokens del usuario, que viajan como claims dentro del JWT.
+ */
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+    private final String role;
+    private final long tokenEpoch;
+
+    public AuthenticatedUser(Long id, String username, String password, String role, boolean enabled, long tokenEpoch) {
+        super(username, password, enabled, true, true, true,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role)));
+        this.id = id;
+        this.role = role;
+        this.tokenEpoch = tokenEpoch;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public long getTokenEpoch() {
+        return tokenEpoch;
+    }
+}
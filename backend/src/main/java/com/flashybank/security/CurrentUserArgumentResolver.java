@@ -0,0 +1,71 @@
+package com.flashybank.security;
+
+import com.flashybank.exception.UserNotFoundException;
+import com.flashybank.repository.UserRepository;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resuelve los parámetros {@code @CurrentUser AuthenticatedUser}.
+ * Con tokens que traen el id en sus claims el principal ya es un {@link AuthenticatedUser} y no se
+ * consulta la base de datos. Si el principal es otro (por ejemplo, uno sin claims de usuario), se busca
+ * por username una sola vez y el resultado queda guardado en la request.
+ */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String ATTRIBUTE = CurrentUserArgumentResolver.class.getName();
+
+    private final UserRepository userRepository;
+
+    public CurrentUserArgumentResolver(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && AuthenticatedUser.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public AuthenticatedUser resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                             NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new AuthenticationCredentialsNotFoundException("No hay un usuario autenticado");
+        }
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+
+        Object resolved = webRequest.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (resolved instanceof AuthenticatedUser user) {
+            return user;
+        }
+        AuthenticatedUser user = load(authentication.getName());
+        webRequest.setAttribute(ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        return user;
+    }
+
+    private AuthenticatedUser load(String username) {
+        return userRepository.findByUsername(username)
+                .map(user -> new AuthenticatedUser(
+                        user.getId(),
+                        user.getUsername(),
+                        "",
+                        user.getRole(),
+                        Boolean.TRUE.equals(user.getEnabled()),
+                        user.getTokenEpoch()
+                ))
+                .orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
+    }
+}
@@ -0,0 +1,9 @@
+package com.flashybank.security;
+
+/**
+ * Se publica cuando cambian el username, el rol, el estado enabled o la contraseña de una cuenta.
+ * username es el valor anterior al cambio, que es la clave con la que se cacheó la cuenta.
+ * Los listeners invalidan sus caches después del commit de la transacción que lo publica.
+ */
+public record UserAccountChangedEvent(Long userId, String username) {
+}
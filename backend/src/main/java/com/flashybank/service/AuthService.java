@@ -9,7 +9,11 @@ import com.flashybank.model.TokenBlacklist;
 import com.flashybank.model.User;
 import com.flashybank.repository.TokenBlacklistRepository;
 import com.flashybank.repository.UserRepository;
+import com.flashybank.security.AuthenticatedUser;
+import com.flashybank.util.JwtClaims;
 import com.flashybank.util.JwtUtil;
+import com.flashybank.util.TokenFingerprints;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -17,12 +21,13 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.Date;
 
 @Service
 @RequiredArgsConstructor
+@Timed("service.invocations")
 public class AuthService {
 
     private final UserRepository userRepository;
@@ -31,20 +36,15 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final UserDetailsServiceImpl userDetailsService;
     private final TokenBlacklistRepository tokenBlacklistRepository;
+    private final TokenRevocationCache tokenRevocationCache;
 
     public LoginResponse login(LoginRequest request) {
-        authenticationManager.authenticate(
+        // El principal autenticado ya trae id, rol y época: no hace falta volver a cargar el usuario
+        Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
         );
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(request.getUsername());
-        String accessToken = jwtUtil.generateToken(userDetails);
-        String refreshToken = jwtUtil.generateRefreshToken(userDetails);
-
-        User user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
-        return new LoginResponse(accessToken, refreshToken, user.getUsername(), user.getRole());
+        return issueTokens((AuthenticatedUser) authentication.getPrincipal());
     }
 
     public LoginResponse register(RegisterRequest request) {
@@ -59,63 +59,62 @@ public class AuthService {
         user.setRole("USER");
         user.setEnabled(true);
 
-        userRepository.save(user);
+        User savedUser = userRepository.save(user);
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getUsername());
-        String accessToken = jwtUtil.generateToken(userDetails);
-        String refreshToken = jwtUtil.generateRefreshToken(userDetails);
-
-        return new LoginResponse(accessToken, refreshToken, user.getUsername(), user.getRole());
+        return issueTokens(new AuthenticatedUser(
+                savedUser.getId(),
+                savedUser.getUsername(),
+                savedUser.getPassword(),
+                savedUser.getRole(),
+                savedUser.getEnabled(),
+                savedUser.getTokenEpoch()
+        ));
     }
 
     public LoginResponse refreshToken(RefreshTokenRequest request) {
-        String username = jwtUtil.extractUsername(request.getRefreshToken());
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-        if (jwtUtil.isTokenValid(request.getRefreshToken(), userDetails)) {
-            String accessToken = jwtUtil.generateToken(userDetails);
-            String refreshToken = jwtUtil.generateRefreshToken(userDetails);
-
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
-            return new LoginResponse(accessToken, refreshToken, user.getUsername(), user.getRole());
+        // Un solo parseo (una verificación de firma), como en logout
+        String refreshToken = request.getRefreshToken();
+        JwtClaims claims = jwtUtil.parseToken(refreshToken);
+        AuthenticatedUser userDetails = userDetailsService.loadUserByUsername(claims.username());
+
+        // Un refresh token revocado en logout no puede seguir emitiendo tokens
+        if (jwtUtil.isTokenValid(claims, userDetails)
+                && !tokenRevocationCache.isRevoked(TokenFingerprints.of(claims, refreshToken))) {
+            return issueTokens(userDetails);
         } else {
             throw new RuntimeException("Refresh token inválido");
         }
     }
 
+    @Transactional
     public void logout(String accessToken, LogoutRequest request) {
-        // Extraer fecha de expiración del access token
-        Date expirationDate = jwtUtil.extractExpiration(accessToken);
-        LocalDateTime expiresAt = LocalDateTime.ofInstant(
-                expirationDate.toInstant(),
-                java.time.ZoneId.systemDefault()
-        );
-
         // Crear entrada en blacklist para el access token
-        TokenBlacklist accessBlacklist = new TokenBlacklist();
-        accessBlacklist.setToken(accessToken);
-        accessBlacklist.setRevokedAt(LocalDateTime.now());
-        accessBlacklist.setExpiresAt(expiresAt);
-        tokenBlacklistRepository.save(accessBlacklist);
+        revoke(accessToken, jwtUtil.parseToken(accessToken));
 
         // También invalidar el refresh token
-        String username = jwtUtil.extractUsername(request.getRefreshToken());
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-        if (jwtUtil.isTokenValid(request.getRefreshToken(), userDetails)) {
-            Date refreshExpiration = jwtUtil.extractExpiration(request.getRefreshToken());
-            LocalDateTime refreshExpiresAt = LocalDateTime.ofInstant(
-                    refreshExpiration.toInstant(),
-                    java.time.ZoneId.systemDefault()
-            );
-
-            TokenBlacklist refreshBlacklist = new TokenBlacklist();
-            refreshBlacklist.setToken(request.getRefreshToken());
-            refreshBlacklist.setRevokedAt(LocalDateTime.now());
-            refreshBlacklist.setExpiresAt(refreshExpiresAt);
-            tokenBlacklistRepository.save(refreshBlacklist);
+        JwtClaims refreshClaims = jwtUtil.parseToken(request.getRefreshToken());
+        UserDetails userDetails = userDetailsService.loadUserByUsername(refreshClaims.username());
+
+        if (jwtUtil.isTokenValid(refreshClaims, userDetails)) {
+            revoke(request.getRefreshToken(), refreshClaims);
         }
     }
+
+    private LoginResponse issueTokens(AuthenticatedUser principal) {
+        String accessToken = jwtUtil.generateToken(principal);
+        String refreshToken = jwtUtil.generateRefreshToken(principal);
+        return new LoginResponse(accessToken, refreshToken, principal.getUsername(), principal.getRole());
+    }
+
+    private void revoke(String token, JwtClaims claims) {
+        TokenBlacklist blacklistEntry = new TokenBlacklist();
+        blacklistEntry.setFingerprint(TokenFingerprints.of(claims, token));
+        blacklistEntry.setRevokedAt(LocalDateTime.now());
+        blacklistEntry.setExpiresAt(LocalDateTime.ofInstant(
+                claims.expiration().toInstant(),
+                java.time.ZoneId.systemDefault()
+        ));
+        tokenBlacklistRepository.save(blacklistEntry);
+        tokenRevocationCache.revoke(blacklistEntry.getFingerprint());
+    }
 }
@@ -0,0 +1,89 @@
+package com.flashybank.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Cache de lectura de saldos para GET /balance.
+ * Las transferencias invalidan las cuentas afectadas al hacer commit, así que el dueño de la cuenta
+ * siempre lee su propio movimiento al terminar la request. Para que una lectura que empezó antes del
+ * commit no deje en la cache el saldo anterior, cada invalidación incrementa una generación (por
+ * stripe de cuentas) y solo se guarda un valor si la generación no cambió mientras se leía.
+ * Es una cache Caffeine acotada por tamaño y TTL: otras instancias no la invalidan, así que el TTL
+ * acota cuánto puede quedar desactualizado un saldo modificado en otro nodo.
+ */
+@Component
+public class BalanceCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final Cache<Long, BigDecimal> balances;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public BalanceCache(MeterRegistry meterRegistry,
+                        @Value("${ledger.balance-cache.max-entries:10000}") long maxEntries,
+                        @Value("${ledger.balance-cache.ttl-ms:5000}") long ttlMillis) {
+        this.balances = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, balances, "balances");
+    }
+
+    public BigDecimal get(Long userId, Supplier<BigDecimal> loader) {
+        BigDecimal cached = balances.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        int stripe = stripe(userId);
+        long generation = generations.get(stripe);
+        BigDecimal balance = loader.get();
+
+        // compute serializa con evict sobre la misma clave: o se guarda antes y evict lo borra, o ve la nueva generación
+        balances.asMap().compute(userId, (id, current) -> generations.get(stripe) == generation ? balance : current);
+        return balance;
+    }
+
+    /**
+     * Invalida las cuentas cuando la transacción actual hace commit (o de inmediato si no hay transacción).
+     * Si la transacción se revierte los saldos no cambiaron y la cache sigue siendo válida.
+     */
+    public void evictAfterCommit(Long... userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userIds);
+            }
+        });
+    }
+
+    void evict(Long... userIds) {
+        for (Long userId : userIds) {
+            balances.asMap().compute(userId, (id, current) -> {
+                generations.incrementAndGet(stripe(id));
+                return null;
+            });
+        }
+    }
+
+    private static int stripe(Long userId) {
+        return Math.floorMod(userId.hashCode(), GENERATION_STRIPES);
+    }
+}
@@ -0,0 +1,87 @@
+package com.flashybank.service;
+
+import com.flashybank.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Purga periódica de idempotency_keys.
+ * Una clave solo protege los reintentos durante idempotency.retention-ms; después su fila se borra
+ * y la tabla no crece sin límite. Igual que TokenBlacklistPurgeJob, borra en chunks, cada uno en su
+ * propia transacción y con una pausa entre ellos.
+ */
+@Slf4j
+@Service
+public class IdempotencyKeyPurgeJob {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long retentionMillis;
+    private final int chunkSize;
+    private final long pauseMs;
+    private final Counter purgedRows;
+
+    public IdempotencyKeyPurgeJob(IdempotencyKeyRepository idempotencyKeyRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${idempotency.retention-ms:86400000}") long retentionMillis,
+                                  @Value("${idempotency.purge.chunk-size:1000}") int chunkSize,
+                                  @Value("${idempotency.purge.pause-ms:50}") long pauseMs) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionMillis = retentionMillis;
+        this.chunkSize = chunkSize;
+        this.pauseMs = pauseMs;
+        this.purgedRows = Counter.builder("idempotency_keys.purge.rows")
+                .description("Claves de idempotencia vencidas eliminadas de idempotency_keys")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge.interval-ms:3600000}",
+            initialDelayString = "${idempotency.purge.interval-ms:3600000}")
+    public void purge() {
+        long purged = purgeCreatedBefore(LocalDateTime.now().minus(Duration.ofMillis(retentionMillis)));
+        if (purged > 0) {
+            log.info("Purga de idempotency_keys: {} claves vencidas eliminadas", purged);
+        }
+    }
+
+    /**
+     * Elimina las claves registradas antes de cutoff y devuelve cuántas filas se borraron.
+     */
+    long purgeCreatedBefore(LocalDateTime cutoff) {
+        long total = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status ->
+                    idempotencyKeyRepository.deleteCreatedBeforeChunk(cutoff, chunkSize));
+            int rows = deleted != null ? deleted : 0;
+            total += rows;
+            purgedRows.increment(rows);
+            if (rows < chunkSize || !pause()) {
+                return total;
+            }
+        }
+    }
+
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
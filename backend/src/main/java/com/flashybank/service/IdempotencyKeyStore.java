@@ -0,0 +1,126 @@
+package com.flashybank.service;
+
+import com.flashybank.exception.IdempotencyKeyReusedException;
+import com.flashybank.model.IdempotencyKey;
+import com.flashybank.repository.IdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Claves Idempotency-Key ya usadas por cada usuario y la transacción que crearon.
+ * La tabla idempotency_keys es la fuente de verdad (su UNIQUE resuelve las carreras entre nodos);
+ * delante hay una cache Caffeine acotada para que los reintentos habituales no consulten la base de datos.
+ * Cada clave guarda la huella de la petición que la registró; reutilizarla con otros datos es un error
+ * del cliente y no devuelve la transacción original. Las claves valen durante idempotency.retention-ms:
+ * la cache expira a ese plazo e IdempotencyKeyPurgeJob borra las filas más antiguas.
+ */
+@Component
+public class IdempotencyKeyStore {
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final Cache<CacheKey, StoredKey> recent;
+
+    public IdempotencyKeyStore(IdempotencyKeyRepository idempotencyKeyRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${idempotency.cache.max-entries:10000}") long maxEntries,
+                               @Value("${idempotency.retention-ms:86400000}") long retentionMillis) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(retentionMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recent, "idempotencyKeys");
+    }
+
+    /**
+     * Transacción creada con la clave, si ya se usó. Lanza {@link IdempotencyKeyReusedException} si la
+     * clave se registró con otra huella de petición.
+     */
+    public Optional<Long> findTransactionId(Long userId, String key, String requestHash) {
+        CacheKey cacheKey = new CacheKey(userId, key);
+        StoredKey stored = recent.getIfPresent(cacheKey);
+        if (stored == null) {
+            Optional<IdempotencyKey> record = idempotencyKeyRepository.findByUserIdAndKey(userId, key);
+            if (record.isEmpty()) {
+                return Optional.empty();
+            }
+            stored = new StoredKey(record.get().getTransactionId(), record.get().getRequestHash());
+            recent.put(cacheKey, stored);
+        }
+
+        // Las claves registradas antes de guardar la huella no se pueden comparar
+        if (stored.requestHash() != null && !stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException(
+                    "La Idempotency-Key ya se usó con otros datos; usa una clave nueva para otra operación");
+        }
+        return Optional.of(stored.transactionId());
+    }
+
+    /**
+     * Registra la clave en la misma transacción que crea la transferencia. Si otra petición con la
+     * misma clave ya la registró, el flush lanza DataIntegrityViolationException y todo se revierte.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void register(Long userId, String key, String requestHash, Long transactionId) {
+        IdempotencyKey record = new IdempotencyKey();
+        record.setUserId(userId);
+        record.setKey(key);
+        record.setRequestHash(requestHash);
+        record.setTransactionId(transactionId);
+        idempotencyKeyRepository.saveAndFlush(record);
+    }
+
+    // Solo se llama después del commit: una clave cuya transacción se revirtió nunca entra a la cache
+    public void remember(Long userId, String key, String requestHash, Long transactionId) {
+        recent.put(new CacheKey(userId, key), new StoredKey(transactionId, requestHash));
+    }
+
+    /**
+     * Huella SHA-256 (hex) de los campos de una petición. Los montos se normalizan para que 100 y 100.00
+     * se consideren la misma petición.
+     */
+    public static String requestHash(Object... fields) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object field : fields) {
+                String value = field instanceof BigDecimal amount ? amount.stripTrailingZeros().toPlainString()
+                        : field == null ? "" : field.toString();
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+                // Separador: ("ab", "c") y ("a", "bc") no deben producir la misma huella
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
+        }
+    }
+
+    public static void validate(String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres");
+        }
+    }
+
+    private record CacheKey(Long userId, String key) {
+    }
+
+    private record StoredKey(Long transactionId, String requestHash) {
+    }
+}
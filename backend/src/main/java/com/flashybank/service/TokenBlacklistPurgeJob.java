@@ -0,0 +1,88 @@
+package com.flashybank.service;
+
+import com.flashybank.repository.TokenBlacklistRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Purga periódica de token_blacklist.
+ * Los tokens expirados ya no pasan la validación de firma, así que sus filas solo ocupan espacio.
+ * Se borran en chunks de DELETE masivos, cada uno en su propia transacción y con una pausa entre
+ * ellos para no retener locks ni saturar el I/O.
+ */
+@Slf4j
+@Service
+public class TokenBlacklistPurgeJob {
+
+    private final TokenBlacklistRepository tokenBlacklistRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long pauseMs;
+    private final Counter purgedRows;
+    private final Timer purgeTimer;
+
+    public TokenBlacklistPurgeJob(TokenBlacklistRepository tokenBlacklistRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${token-blacklist.purge.chunk-size:1000}") int chunkSize,
+                                  @Value("${token-blacklist.purge.pause-ms:50}") long pauseMs) {
+        this.tokenBlacklistRepository = tokenBlacklistRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.pauseMs = pauseMs;
+        this.purgedRows = Counter.builder("token_blacklist.purge.rows")
+                .description("Filas expiradas eliminadas de token_blacklist")
+                .register(meterRegistry);
+        this.purgeTimer = Timer.builder("token_blacklist.purge.duration")
+                .description("Duración de cada ejecución de la purga de token_blacklist")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${token-blacklist.purge.interval-ms:900000}",
+            initialDelayString = "${token-blacklist.purge.interval-ms:900000}")
+    public void purge() {
+        long purged = purgeTimer.record(() -> purgeExpired(LocalDateTime.now()));
+        if (purged > 0) {
+            log.info("Purga de token_blacklist: {} filas expiradas eliminadas", purged);
+        }
+    }
+
+    /**
+     * Elimina los tokens que expiraron antes de cutoff y devuelve cuántas filas se borraron.
+     */
+    long purgeExpired(LocalDateTime cutoff) {
+        long total = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status ->
+                    tokenBlacklistRepository.deleteExpiredChunk(cutoff, chunkSize));
+            int rows = deleted != null ? deleted : 0;
+            total += rows;
+            purgedRows.increment(rows);
+            if (rows < chunkSize || !pause()) {
+                return total;
+            }
+        }
+    }
+
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.flashybank.service;
+
+import com.flashybank.repository.TokenBlacklistRepository;
+import com.flashybank.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Cache de revocación de tokens delante de token_blacklist.
+ * Un filtro de Bloom responde en memoria el caso común (token no revocado) y solo un posible
+ * positivo se confirma contra la base de datos. El filtro se reconstruye periódicamente para
+ * descartar tokens expirados e incorporar revocaciones hechas en otros nodos. Hasta que la primera
+ * reconstrucción termina bien el filtro no conoce las revocaciones ya guardadas, así que mientras
+ * tanto todas las consultas van a la base de datos.
+ */
+@Slf4j
+@Service
+public class TokenRevocationCache {
+
+    private final TokenBlacklistRepository tokenBlacklistRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long minimumCapacity;
+    private final double falsePositiveRate;
+    private final Counter filteredLookups;
+    private final Counter revokedLookups;
+    private final Counter falsePositiveLookups;
+    private final Counter unfilteredLookups;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding;
+    private volatile boolean loaded;
+
+    public TokenRevocationCache(TokenBlacklistRepository tokenBlacklistRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${token-revocation.minimum-capacity:100000}") long minimumCapacity,
+                                @Value("${token-revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.tokenBlacklistRepository = tokenBlacklistRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.minimumCapacity = minimumCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(minimumCapacity, falsePositiveRate);
+        // filtered: resuelto en memoria; revoked / false_positive: confirmado contra token_blacklist;
+        // unfiltered: no revocado, consultado en la base porque el filtro todavía no se cargó
+        this.filteredLookups = lookupCounter(meterRegistry, "filtered");
+        this.revokedLookups = lookupCounter(meterRegistry, "revoked");
+        this.falsePositiveLookups = lookupCounter(meterRegistry, "false_positive");
+        this.unfilteredLookups = lookupCounter(meterRegistry, "unfiltered");
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("token.revocation.lookups")
+                .description("Consultas de revocación de tokens según cómo se resolvieron")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(byte[] fingerprint) {
+        boolean filtered = loaded;
+        if (filtered && !filter.mightContain(fingerprint)) {
+            filteredLookups.increment();
+            return false;
+        }
+        boolean revoked = tokenBlacklistRepository.existsByFingerprint(fingerprint);
+        if (revoked) {
+            revokedLookups.increment();
+        } else if (filtered) {
+            falsePositiveLookups.increment();
+        } else {
+            unfilteredLookups.increment();
+        }
+        return revoked;
+    }
+
+    /**
+     * Registra la huella de un token recién revocado. Se vuelve a agregar después del commit para que una
+     * reconstrucción concurrente del filtro no lo pierda.
+     */
+    public void revoke(byte[] fingerprint) {
+        add(fingerprint);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(fingerprint);
+                }
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${token-revocation.rebuild-interval-ms:60000}",
+            initialDelayString = "${token-revocation.rebuild-interval-ms:60000}")
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        long activeTokens = tokenBlacklistRepository.countByExpiresAtAfter(now);
+        BloomFilter next = new BloomFilter(Math.max(minimumCapacity, activeTokens * 2), falsePositiveRate);
+
+        // Las revocaciones que lleguen mientras se lee la tabla también van al filtro nuevo
+        rebuilding = next;
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<byte[]> fingerprints = tokenBlacklistRepository.streamFingerprintsByExpiresAtAfter(now)) {
+                    fingerprints.forEach(next::put);
+                }
+            });
+            filter = next;
+            loaded = true;
+            log.debug("Filtro de revocación reconstruido con {} tokens activos", activeTokens);
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    private void add(byte[] fingerprint) {
+        filter.put(fingerprint);
+        BloomFilter pending = rebuilding;
+        if (pending != null) {
+            pending.put(fingerprint);
+        }
+    }
+}
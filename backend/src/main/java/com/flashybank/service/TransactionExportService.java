@@ -0,0 +1,147 @@
+package com.flashybank.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.flashybank.dto.TransactionHistoryResponse;
+import com.flashybank.dto.TransactionHistoryWindow;
+import com.flashybank.repository.TransactionRepository;
+import com.flashybank.repository.TransactionRepository.HistoryEntry;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Exporta el historial completo de un usuario escribiendo cada fila directamente en la respuesta.
+ * Las filas llegan por un cursor de la base de datos y no se acumulan en memoria, así que el heap
+ * usado no depende del tamaño del historial.
+ */
+@Service
+public class TransactionExportService {
+
+    private static final String CSV_HEADER = "id,other_user,amount,status,type,description,created_at";
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectWriter ndjsonWriter;
+
+    public TransactionExportService(TransactionRepository transactionRepository, ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        // Un objeto JSON por línea; sin flush por fila para que el buffer agrupe las escrituras
+        this.ndjsonWriter = objectMapper.writerFor(TransactionHistoryResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
+    }
+
+    @Transactional(readOnly = true)
+    public void export(Long userId, Format format, TransactionHistoryWindow window, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (Stream<HistoryEntry> history = transactionRepository.streamHistory(userId, window.from(), window.to())) {
+            Iterator<HistoryEntry> rows = history.iterator();
+            if (format == Format.CSV) {
+                writeCsv(rows, writer);
+            } else {
+                writeNdjson(rows, writer);
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Iterator<HistoryEntry> rows, Writer writer) throws IOException {
+        if (!rows.hasNext()) {
+            return;
+        }
+        try (SequenceWriter sequence = ndjsonWriter.writeValues(writer)) {
+            while (rows.hasNext()) {
+                sequence.write(toResponse(rows.next()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private void writeCsv(Iterator<HistoryEntry> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (rows.hasNext()) {
+            HistoryEntry row = rows.next();
+            writer.write(String.valueOf(row.getId()));
+            writer.write(',');
+            writer.write(csv(row.getOtherUser()));
+            writer.write(',');
+            writer.write(row.getAmount().toPlainString());
+            writer.write(',');
+            writer.write(csv(row.getStatus()));
+            writer.write(',');
+            writer.write(row.getType());
+            writer.write(',');
+            writer.write(csv(row.getDescription()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getCreatedAt()));
+            writer.write('\n');
+        }
+    }
+
+    private static TransactionHistoryResponse toResponse(HistoryEntry row) {
+        return new TransactionHistoryResponse(
+                row.getId(),
+                row.getOtherUser(),
+                row.getAmount(),
+                row.getStatus(),
+                row.getType(),
+                row.getDescription(),
+                row.getCreatedAt()
+        );
+    }
+
+    // Entrecomilla según RFC 4180 solo cuando el valor lo necesita
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    public enum Format {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public static Format from(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Formato de exportación no soportado: " + value);
+            }
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.flashybank.service;
+
+import com.flashybank.repository.PartitionRepository;
+import com.flashybank.repository.PartitionRepository.RangePartition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Mantenimiento de las particiones mensuales de transactions (PostgreSQL, ver migración 008).
+ * Crea por adelantado las particiones de los próximos meses, porque un INSERT fuera de todo rango
+ * falla, y opcionalmente archiva las más antiguas: se separan de la tabla y se mueven a otro schema
+ * en una misma transacción. No copia ni borra filas, pero el DETACH bloquea transactions mientras
+ * dura, así que conviene programarlo fuera de horario (transactions.partitions.cron).
+ * La partición heredada de la migración (FROM MINVALUE) nunca se archiva: guarda todo el historial
+ * anterior a la migración y moverla de una vez lo sacaría entero de transactions.
+ */
+@Slf4j
+@Service
+public class TransactionPartitionJob {
+
+    private static final String TABLE = "transactions";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final PartitionRepository partitionRepository;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int archiveAfterMonths;
+    private final String archiveSchema;
+
+    public TransactionPartitionJob(PartitionRepository partitionRepository,
+                                   @Value("${transactions.partitions.maintenance-enabled:false}") boolean enabled,
+                                   @Value("${transactions.partitions.months-ahead:3}") int monthsAhead,
+                                   @Value("${transactions.partitions.archive-after-months:0}") int archiveAfterMonths,
+                                   @Value("${transactions.partitions.archive-schema:archive}") String archiveSchema) {
+        this.partitionRepository = partitionRepository;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.archiveAfterMonths = archiveAfterMonths;
+        this.archiveSchema = archiveSchema;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${transactions.partitions.cron:0 0 3 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        maintain(LocalDate.now());
+    }
+
+    void maintain(LocalDate today) {
+        List<RangePartition> partitions = partitionRepository.findRangePartitions(TABLE);
+        createFuturePartitions(partitions, YearMonth.from(today));
+        if (archiveAfterMonths > 0) {
+            archiveOldPartitions(partitions, YearMonth.from(today).minusMonths(archiveAfterMonths));
+        }
+    }
+
+    private void createFuturePartitions(List<RangePartition> partitions, YearMonth current) {
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+
+            // Un mes ya cubierto (por ejemplo, por la partición heredada) no se vuelve a crear
+            if (partitions.stream().noneMatch(p -> p.overlaps(from, to))) {
+                String name = TABLE + "_p" + month.format(PARTITION_SUFFIX);
+                partitionRepository.createRangePartition(TABLE, name, from, to);
+                log.info("Partición {} creada para [{}, {})", name, from, to);
+            }
+        }
+    }
+
+    private void archiveOldPartitions(List<RangePartition> partitions, YearMonth oldestKept) {
+        LocalDateTime cutoff = oldestKept.atDay(1).atStartOfDay();
+        for (RangePartition partition : partitions) {
+            if (partition.lowerBound() == null) {
+                continue;
+            }
+            if (partition.upperBound() != null && !partition.upperBound().isAfter(cutoff)) {
+                partitionRepository.archivePartition(TABLE, partition.name(), archiveSchema);
+                log.info("Partición {} archivada en el schema {}", partition.name(), archiveSchema);
+            }
+        }
+    }
+}
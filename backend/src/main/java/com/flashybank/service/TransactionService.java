@@ -1,29 +1,58 @@
 package com.flashybank.service;
 
 import com.flashybank.dto.InitiateTransferRequest;
+import com.flashybank.dto.TransactionHistoryCursor;
+import com.flashybank.dto.TransactionHistoryPage;
 import com.flashybank.dto.TransactionHistoryResponse;
+import com.flashybank.dto.TransactionHistoryWindow;
 import com.flashybank.dto.TransactionResponse;
 import com.flashybank.exception.*;
+import com.flashybank.ledger.LedgerEngine;
+import com.flashybank.ledger.TransferExecutor;
 import com.flashybank.model.Transaction;
 import com.flashybank.model.User;
 import com.flashybank.repository.TransactionRepository;
 import com.flashybank.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+// Timer por método con el tag exception (none si terminó bien), por ejemplo InsufficientBalanceException
+@Timed("service.invocations")
 public class TransactionService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
+    private final LedgerEngine ledgerEngine;
+    private final TransferExecutor transferExecutor;
+    private final IdempotencyKeyStore idempotencyKeyStore;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceCache balanceCache;
+
+    public TransactionResponse initiateTransfer(Long senderId, InitiateTransferRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return doInitiateTransfer(senderId, request);
+        }
+        String requestHash = IdempotencyKeyStore.requestHash("initiate", request.getReceiverUsername(),
+                request.getAmount(), request.getDescription());
+        return idempotent(senderId, idempotencyKey, requestHash, () -> transactionTemplate.execute(status ->
+                registered(senderId, idempotencyKey, requestHash, doInitiateTransfer(senderId, request))));
+    }
 
-    public TransactionResponse initiateTransfer(Long senderId, InitiateTransferRequest request) {
+    private TransactionResponse doInitiateTransfer(Long senderId, InitiateTransferRequest request) {
         // 1. Buscar remitente
         User sender = userRepository.findById(senderId)
                 .orElseThrow(() -> new UserNotFoundException("Usuario remitente no encontrado"));
@@ -38,30 +67,35 @@ public class TransactionService {
         }
 
         // 4. Validar saldo suficiente
-        if (sender.getBalance().compareTo(request.getAmount()) < 0) {
+        BigDecimal senderBalance = ledgerEngine.getBalance(sender);
+        if (senderBalance.compareTo(request.getAmount()) < 0) {
             throw new InsufficientBalanceException(
                     String.format("Saldo insuficiente. Tu saldo actual: %s, Monto a transferir: %s",
-                            sender.getBalance(), request.getAmount())
+                            senderBalance, request.getAmount())
             );
         }
 
         // 5. Crear transacción con estado PENDING
         Transaction transaction = new Transaction();
         transaction.setSenderId(senderId);
-        transaction.setReceiverUsername(receiver.getUsername());
+        transaction.setReceiverId(receiver.getId());
         transaction.setAmount(request.getAmount());
         transaction.setDescription(request.getDescription());
         transaction.setStatus("PENDING");
 
         Transaction savedTransaction = transactionRepository.save(transaction);
 
-        return TransactionResponse.fromEntity(savedTransaction, sender.getUsername());
+        return TransactionResponse.fromEntity(savedTransaction, sender.getUsername(), receiver.getUsername());
     }
 
-    @Transactional
+    // Sin @Transactional: TransferExecutor abre la transacción y, en modo optimista, la reintenta completa
     public TransactionResponse confirmTransfer(Long transactionId, Long senderId) {
-        // 1. Buscar transacción
-        Transaction transaction = transactionRepository.findById(transactionId)
+        return transferExecutor.execute(() -> doConfirmTransfer(transactionId, senderId));
+    }
+
+    private TransactionResponse doConfirmTransfer(Long transactionId, Long senderId) {
+        // 1. Buscar transacción (bloqueada hasta el commit para evitar una doble confirmación)
+        Transaction transaction = ledgerEngine.lockTransaction(transactionId)
                 .orElseThrow(() -> new TransactionNotFoundException("Transacción no encontrada"));
 
         // 2. Validar que la transacción pertenezca al remitente
@@ -80,36 +114,23 @@ public class TransactionService {
         User sender = userRepository.findById(senderId)
                 .orElseThrow(() -> new UserNotFoundException("Usuario remitente no encontrado"));
 
-        User receiver = userRepository.findByUsername(transaction.getReceiverUsername())
+        User receiver = userRepository.findById(transaction.getReceiverId())
                 .orElseThrow(() -> new UserNotFoundException("Usuario destinatario no encontrado"));
 
-        // 5. Validar nuevamente saldo suficiente
-        if (sender.getBalance().compareTo(transaction.getAmount()) < 0) {
-            throw new InsufficientBalanceException(
-                    String.format("Saldo insuficiente. Tu saldo actual: %s, Monto a transferir: %s",
-                            sender.getBalance(), transaction.getAmount())
-            );
-        }
-
-        // 6. Actualizar saldos
-        sender.setBalance(sender.getBalance().subtract(transaction.getAmount()));
-        receiver.setBalance(receiver.getBalance().add(transaction.getAmount()));
-
-        // 7. Actualizar estado de la transacción
+        // 5. Actualizar estado de la transacción
         transaction.setStatus("COMPLETED");
 
-        // 8. Guardar cambios
-        userRepository.save(sender);
-        userRepository.save(receiver);
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        // 6. Mover saldos y guardar (el ledger valida nuevamente el saldo suficiente)
+        Transaction savedTransaction = ledgerEngine.transfer(sender, receiver, transaction);
+        balanceCache.evictAfterCommit(sender.getId(), receiver.getId());
 
-        return TransactionResponse.fromEntity(savedTransaction, sender.getUsername());
+        return TransactionResponse.fromEntity(savedTransaction, sender.getUsername(), receiver.getUsername());
     }
 
     @Transactional
     public TransactionResponse cancelTransfer(Long transactionId, Long senderId) {
-        // 1. Buscar transacción
-        Transaction transaction = transactionRepository.findById(transactionId)
+        // 1. Buscar transacción (bloqueada para no cancelar una que se está confirmando)
+        Transaction transaction = ledgerEngine.lockTransaction(transactionId)
                 .orElseThrow(() -> new TransactionNotFoundException("Transacción no encontrada"));
 
         // 2. Validar que la transacción pertenezca al remitente
@@ -131,55 +152,63 @@ public class TransactionService {
         User sender = userRepository.findById(senderId)
                 .orElseThrow(() -> new UserNotFoundException("Usuario remitente no encontrado"));
 
-        return TransactionResponse.fromEntity(savedTransaction, sender.getUsername());
+        return TransactionResponse.fromEntity(savedTransaction, sender.getUsername(), receiverUsername(savedTransaction));
     }
 
+    // userId viene del usuario autenticado: no hace falta cargarlo, un id sin transacciones devuelve una lista vacía
     public List<TransactionHistoryResponse> getTransactionHistory(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
-
-        String username = user.getUsername();
-
-        // Obtener transacciones enviadas
-        List<Transaction> sentTransactions = transactionRepository.findBySenderIdOrderByCreatedAtDesc(userId);
-
-        // Obtener transacciones recibidas
-        List<Transaction> receivedTransactions = transactionRepository.findByReceiverUsernameOrderByCreatedAtDesc(username);
-
-        // Combinar y convertir a DTOs
-        List<TransactionHistoryResponse> sent = sentTransactions.stream()
-                .map(t -> new TransactionHistoryResponse(
-                        t.getId(),
-                        t.getReceiverUsername(),
-                        t.getAmount(),
-                        t.getStatus(),
-                        "SENT",
-                        t.getDescription(),
-                        t.getCreatedAt()
+        TransactionHistoryWindow window = TransactionHistoryWindow.ALL;
+        return findHistory(userId, window, TransactionHistoryCursor.before(window.to()), Integer.MAX_VALUE);
+    }
+
+    // Historial paginado por cursor (keyset) sobre (created_at, id), opcionalmente acotado a una ventana de fechas
+    public TransactionHistoryPage getTransactionHistoryPage(Long userId, String cursor, int limit,
+                                                            TransactionHistoryWindow window) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("El límite debe ser mayor a cero");
+        }
+        int pageSize = Math.min(limit, MAX_HISTORY_PAGE_SIZE);
+
+        // Se pide una fila extra para saber si existe una página siguiente
+        TransactionHistoryCursor position = cursor == null || cursor.isBlank()
+                ? TransactionHistoryCursor.before(window.to())
+                : TransactionHistoryCursor.decode(cursor);
+        List<TransactionHistoryResponse> items = findHistory(userId, window, position, pageSize + 1);
+        if (items.size() <= pageSize) {
+            return new TransactionHistoryPage(items, null);
+        }
+
+        items = items.subList(0, pageSize);
+        String nextCursor = TransactionHistoryCursor.of(items.get(pageSize - 1)).encode();
+        return new TransactionHistoryPage(items, nextCursor);
+    }
+
+    private List<TransactionHistoryResponse> findHistory(Long userId, TransactionHistoryWindow window,
+                                                         TransactionHistoryCursor cursor, int limit) {
+        return transactionRepository.findHistoryBefore(userId, window.from(), cursor.createdAt(), cursor.id(), limit)
+                .stream()
+                .map(h -> new TransactionHistoryResponse(
+                        h.getId(),
+                        h.getOtherUser(),
+                        h.getAmount(),
+                        h.getStatus(),
+                        h.getType(),
+                        h.getDescription(),
+                        h.getCreatedAt()
                 ))
                 .collect(Collectors.toList());
+    }
 
-        List<TransactionHistoryResponse> received = receivedTransactions.stream()
-                .map(t -> {
-                    User sender = userRepository.findById(t.getSenderId()).orElse(null);
-                    String senderUsername = sender != null ? sender.getUsername() : "Desconocido";
-                    return new TransactionHistoryResponse(
-                            t.getId(),
-                            senderUsername,
-                            t.getAmount(),
-                            t.getStatus(),
-                            "RECEIVED",
-                            t.getDescription(),
-                            t.getCreatedAt()
-                    );
-                })
-                .collect(Collectors.toList());
+    private String receiverUsername(Transaction transaction) {
+        return userRepository.findUsernameById(transaction.getReceiverId()).orElse("Desconocido");
+    }
 
-        // Combinar y ordenar por fecha descendente
-        sent.addAll(received);
-        return sent.stream()
-                .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-                .collect(Collectors.toList());
+    public BigDecimal getBalance(Long userId) {
+        return balanceCache.get(userId, () -> {
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
+            return ledgerEngine.getBalance(user);
+        });
     }
 
     public TransactionResponse getTransactionById(Long transactionId, Long userId) {
@@ -194,12 +223,58 @@ public class TransactionService {
         User sender = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("Usuario remitente no encontrado"));
 
-        return TransactionResponse.fromEntity(transaction, sender.getUsername());
+        return TransactionResponse.fromEntity(transaction, sender.getUsername(), receiverUsername(transaction));
     }
 
     // Transferencia directa (sin confirmación separada)
-    @Transactional
-    public TransactionResponse transferDirect(Long senderId, String receiverUsername, BigDecimal amount, String description) {
+    public TransactionResponse transferDirect(Long senderId, String receiverUsername, BigDecimal amount, String description,
+                                              String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return transferExecutor.execute(() -> doTransferDirect(senderId, receiverUsername, amount, description));
+        }
+        // Con el ledger en memoria el journal persiste el movimiento en otra transacción: si el registro de la
+        // clave fallara después, la transferencia ya estaría hecha y un reintento la repetiría
+        if (!ledgerEngine.persistsInCallerTransaction()) {
+            throw new IllegalArgumentException("Idempotency-Key no está disponible con el ledger en memoria");
+        }
+        String requestHash = IdempotencyKeyStore.requestHash("transfer", receiverUsername, amount, description);
+        // La clave se registra dentro de cada intento, así un reintento optimista no la deja registrada dos veces
+        return idempotent(senderId, idempotencyKey, requestHash, () -> transferExecutor.execute(() ->
+                registered(senderId, idempotencyKey, requestHash,
+                        doTransferDirect(senderId, receiverUsername, amount, description))));
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por (usuario, clave). Un reintento con una clave ya usada devuelve
+     * la transacción original sin volver a mover saldos. Debe llamarse fuera de cualquier transacción:
+     * si dos peticiones con la misma clave compiten, la perdedora se revierte y responde con la ganadora.
+     * Una clave ya usada con otra huella de petición se rechaza con 422.
+     */
+    private TransactionResponse idempotent(Long userId, String key, String requestHash,
+                                           Supplier<TransactionResponse> operation) {
+        IdempotencyKeyStore.validate(key);
+        Optional<Long> previous = idempotencyKeyStore.findTransactionId(userId, key, requestHash);
+        if (previous.isPresent()) {
+            return getTransactionById(previous.get(), userId);
+        }
+
+        try {
+            TransactionResponse response = operation.get();
+            idempotencyKeyStore.remember(userId, key, requestHash, response.getId());
+            return response;
+        } catch (DataIntegrityViolationException ex) {
+            return idempotencyKeyStore.findTransactionId(userId, key, requestHash)
+                    .map(transactionId -> getTransactionById(transactionId, userId))
+                    .orElseThrow(() -> ex);
+        }
+    }
+
+    private TransactionResponse registered(Long userId, String key, String requestHash, TransactionResponse response) {
+        idempotencyKeyStore.register(userId, key, requestHash, response.getId());
+        return response;
+    }
+
+    private TransactionResponse doTransferDirect(Long senderId, String receiverUsername, BigDecimal amount, String description) {
         // 1. Buscar remitente
         User sender = userRepository.findById(senderId)
                 .orElseThrow(() -> new UserNotFoundException("Usuario remitente no encontrado"));
@@ -213,31 +288,18 @@ public class TransactionService {
             throw new IllegalArgumentException("No puedes transferirte dinero a ti mismo");
         }
 
-        // 4. Validar saldo suficiente
-        if (sender.getBalance().compareTo(amount) < 0) {
-            throw new InsufficientBalanceException(
-                    String.format("Saldo insuficiente. Tu saldo actual: %s, Monto a transferir: %s",
-                            sender.getBalance(), amount)
-            );
-        }
-
-        // 5. Actualizar saldos
-        sender.setBalance(sender.getBalance().subtract(amount));
-        receiver.setBalance(receiver.getBalance().add(amount));
-
-        // 6. Crear transacción con estado COMPLETED
+        // 4. Crear transacción con estado COMPLETED
         Transaction transaction = new Transaction();
         transaction.setSenderId(senderId);
-        transaction.setReceiverUsername(receiver.getUsername());
+        transaction.setReceiverId(receiver.getId());
         transaction.setAmount(amount);
         transaction.setDescription(description);
         transaction.setStatus("COMPLETED");
 
-        // 7. Guardar cambios
-        userRepository.save(sender);
-        userRepository.save(receiver);
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        // 5. Mover saldos y guardar (el ledger valida el saldo suficiente)
+        Transaction savedTransaction = ledgerEngine.transfer(sender, receiver, transaction);
+        balanceCache.evictAfterCommit(sender.getId(), receiver.getId());
 
-        return TransactionResponse.fromEntity(savedTransaction, sender.getUsername());
+        return TransactionResponse.fromEntity(savedTransaction, sender.getUsername(), receiver.getUsername());
     }
 }
@@ -2,31 +2,100 @@ package com.flashybank.service;
 
 import com.flashybank.model.User;
 import com.flashybank.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import com.flashybank.security.AuthenticatedUser;
+import com.flashybank.security.UserAccountChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
-import java.util.Collections;
+import java.time.Duration;
 
+/**
+ * Carga las cuentas por username con una cache Caffeine acotada por tamaño y TTL.
+ * Se cachea una copia inmutable de los datos y cada llamada recibe un {@link AuthenticatedUser} nuevo:
+ * Spring Security borra la contraseña del principal después de autenticar, y si se compartiera la
+ * instancia cacheada el siguiente login fallaría.
+ */
 @Service
-@RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache<String, CachedAccount> accounts;
 
-    @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + username));
-
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole())))
-                .disabled(!user.getEnabled())
+    public UserDetailsServiceImpl(UserRepository userRepository,
+                                  ApplicationEventPublisher eventPublisher,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${security.user-cache.max-entries:10000}") long maxEntries,
+                                  @Value("${security.user-cache.ttl-ms:300000}") long ttlMillis) {
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
                 .build();
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size con la etiqueta cache=userDetails
+        CaffeineCacheMetrics.monitor(meterRegistry, accounts, "userDetails");
+    }
+
+    @Override
+    public AuthenticatedUser loadUserByUsername(String username) throws UsernameNotFoundException {
+        // Los usuarios inexistentes no se cachean: la cuenta puede registrarse en cualquier momento
+        CachedAccount account = accounts.get(username, key -> userRepository.findByUsername(key)
+                .map(CachedAccount::of)
+                .orElse(null));
+        if (account == null) {
+            throw new UsernameNotFoundException("Usuario no encontrado: " + username);
+        }
+        return account.toPrincipal();
+    }
+
+    /**
+     * Llamado por DaoAuthenticationProvider tras un login correcto cuando el hash guardado usa un costo
+     * menor que security.password.bcrypt-strength.
+     * El principal devuelto se lee sin pasar por la cache: el hash nuevo no se cachea hasta el commit.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        if (userRepository.updatePassword(user.getUsername(), newPassword) == 0) {
+            throw new UsernameNotFoundException("Usuario no encontrado: " + user.getUsername());
+        }
+        CachedAccount account = userRepository.findByUsername(user.getUsername())
+                .map(CachedAccount::of)
+                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + user.getUsername()));
+        eventPublisher.publishEvent(new UserAccountChangedEvent(account.id(), account.username()));
+        return account.toPrincipal();
+    }
+
+    // Después del commit: si se invalidara antes, otra request podría volver a cachear el valor anterior
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserAccountChanged(UserAccountChangedEvent event) {
+        accounts.invalidate(event.username());
+    }
+
+    private record CachedAccount(Long id, String username, String password, String role, boolean enabled,
+                                 long tokenEpoch) {
+
+        static CachedAccount of(User user) {
+            return new CachedAccount(user.getId(), user.getUsername(), user.getPassword(), user.getRole(),
+                    user.getEnabled(), user.getTokenEpoch());
+        }
+
+        AuthenticatedUser toPrincipal() {
+            return new AuthenticatedUser(id, username, password, role, enabled, tokenEpoch);
+        }
     }
 }
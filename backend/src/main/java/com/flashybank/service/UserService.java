@@ -0,0 +1,51 @@
+package com.flashybank.service;
+
+import com.flashybank.exception.UserNotFoundException;
+import com.flashybank.exception.UsernameAlreadyInUseException;
+import com.flashybank.model.User;
+import com.flashybank.repository.UserRepository;
+import com.flashybank.security.UserAccountChangedEvent;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+@Timed("service.invocations")
+public class UserService {
+
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Cambia el username (no balance, role ni enabled) en una sola transacción.
+     * El evento se publica dentro de ella y los listeners invalidan sus caches recién tras el commit.
+     * Si una transferencia modificó la cuenta en paralelo, el @Version de User hace fallar el commit
+     * con OptimisticLockingFailureException (409, el cliente puede reenviar el mismo cambio).
+     */
+    @Transactional
+    public User updateUsername(Long userId, String newUsername) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
+        String currentUsername = user.getUsername();
+        if (currentUsername.equals(newUsername)) {
+            return user;
+        }
+
+        // Validar que el nuevo username no esté en uso por otro usuario
+        if (userRepository.existsByUsername(newUsername)) {
+            throw new UsernameAlreadyInUseException("El nombre de usuario ya está en uso");
+        }
+
+        user.setUsername(newUsername);
+        // Los tokens emitidos con el username anterior dejan de ser válidos
+        user.setTokenEpoch(user.getTokenEpoch() + 1);
+        User updatedUser = userRepository.save(user);
+
+        // Invalida la época cacheada y la cuenta cacheada bajo el username anterior
+        eventPublisher.publishEvent(new UserAccountChangedEvent(updatedUser.getId(), currentUsername));
+        return updatedUser;
+    }
+}
@@ -0,0 +1,44 @@
+package com.flashybank.util;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Claims ya verificados de un JWT, extraídos con un único parseo.
+ * tokenId (jti) es null en tokens emitidos antes de incluirlo; userId, role, enabled y tokenEpoch
+ * son null en tokens emitidos sin claims de principal.
+ */
+public record JwtClaims(String username, Date issuedAt, Date expiration, String tokenId,
+                        Long userId, String role, Boolean enabled, Long tokenEpoch) {
+
+    public static final String USER_ID = "uid";
+    public static final String ROLE = "role";
+    public static final String ENABLED = "enabled";
+    public static final String TOKEN_EPOCH = "epoch";
+
+    public static JwtClaims from(Claims claims) {
+        return new JwtClaims(
+                claims.getSubject(),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                claims.getId(),
+                toLong(claims.get(USER_ID, Number.class)),
+                claims.get(ROLE, String.class),
+                claims.get(ENABLED, Boolean.class),
+                toLong(claims.get(TOKEN_EPOCH, Number.class))
+        );
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+
+    public boolean hasPrincipalClaims() {
+        return userId != null && role != null && enabled != null && tokenEpoch != null;
+    }
+
+    private static Long toLong(Number value) {
+        return value != null ? value.longValue() : null;
+    }
+}
@@ -1,7 +1,10 @@
 package com.flashybank.util;
 
+import com.flashybank.security.AuthenticatedUser;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -11,23 +14,54 @@ import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
-
-    @Value("${jwt.expiration}")
-    private Long jwtExpiration;
+    // La clave y el parser son inmutables y thread-safe: se construyen una sola vez
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long jwtExpiration;
+    private final long refreshExpiration;
+    private final Timer signTimer;
+    private final Timer validParseTimer;
+    private final Timer expiredParseTimer;
+    private final Timer invalidParseTimer;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") long jwtExpiration,
+                   @Value("${jwt.refresh-expiration}") long refreshExpiration,
+                   MeterRegistry meterRegistry) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        this.jwtExpiration = jwtExpiration;
+        this.refreshExpiration = refreshExpiration;
+        this.signTimer = Timer.builder("jwt.sign")
+                .description("Tiempo de firma de tokens")
+                .register(meterRegistry);
+        this.validParseTimer = parseTimer(meterRegistry, "valid");
+        this.expiredParseTimer = parseTimer(meterRegistry, "expired");
+        this.invalidParseTimer = parseTimer(meterRegistry, "invalid");
+    }
 
-    @Value("${jwt.refresh-expiration}")
-    private Long refreshExpiration;
+    private static Timer parseTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("jwt.parse")
+                .description("Tiempo de verificación de firma y parseo de tokens")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Verifica la firma y devuelve los claims del token en una sola pasada.
+     * Lanza {@link JwtException} si el token es inválido o está expirado.
+     */
+    public JwtClaims parseToken(String token) {
+        return JwtClaims.from(extractAllClaims(token));
     }
 
     public String extractUsername(String token) {
@@ -44,15 +78,18 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        long start = System.nanoTime();
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            validParseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        } catch (ExpiredJwtException e) {
+            expiredParseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        } catch (JwtException | IllegalArgumentException e) {
+            invalidParseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -67,18 +104,33 @@ public class JwtUtil {
         return createToken(new HashMap<>(), userDetails, refreshExpiration);
     }
 
-    private String createToken(Map<String, Object> extraClaims, UserDetails userDetails, Long expiration) {
-        return Jwts.builder()
-                .claims(extraClaims)
+    private String createToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+
+        // Con estos claims el filtro puede construir el principal sin consultar la base de datos
+        if (userDetails instanceof AuthenticatedUser user) {
+            claims.put(JwtClaims.USER_ID, user.getId());
+            claims.put(JwtClaims.ROLE, user.getRole());
+            claims.put(JwtClaims.ENABLED, user.isEnabled());
+            claims.put(JwtClaims.TOKEN_EPOCH, user.getTokenEpoch());
+        }
+
+        long now = System.currentTimeMillis();
+        return signTimer.record(() -> Jwts.builder()
+                .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(userDetails.getUsername())
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
-                .compact();
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration))
+                .signWith(signingKey)
+                .compact());
     }
 
     public Boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return isTokenValid(parseToken(token), userDetails);
+    }
+
+    public boolean isTokenValid(JwtClaims claims, UserDetails userDetails) {
+        return claims.username().equals(userDetails.getUsername()) && !claims.isExpired();
     }
 }
@@ -0,0 +1,35 @@
+package com.flashybank.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Huella de 256 bits con la que se identifica un token en token_blacklist.
+ * Los tokens con jti se identifican por el hash de su jti; los emitidos antes de incluir
+ * jti se identifican por el hash del token completo (igual que el backfill de la migración).
+ */
+public final class TokenFingerprints {
+
+    public static final int LENGTH = 32;
+
+    private TokenFingerprints() {
+    }
+
+    public static byte[] of(String tokenId, String token) {
+        String source = tokenId != null ? tokenId : token;
+        return sha256(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static byte[] of(JwtClaims claims, String token) {
+        return of(claims.tokenId(), token);
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
+        }
+    }
+}
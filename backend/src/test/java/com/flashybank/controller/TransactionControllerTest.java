@@ -2,25 +2,35 @@ package com.flashybank.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flashybank.dto.InitiateTransferRequest;
+import com.flashybank.dto.TransactionHistoryCursor;
+import com.flashybank.dto.TransactionHistoryPage;
 import com.flashybank.dto.TransactionHistoryResponse;
+import com.flashybank.dto.TransactionHistoryWindow;
 import com.flashybank.dto.TransactionResponse;
 import com.flashybank.model.User;
 import com.flashybank.repository.UserRepository;
 import com.flashybank.service.TransactionService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -37,6 +47,10 @@ class TransactionControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    // La exportación usa el TransactionRepository real: las filas se insertan directamente en H2
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @org.springframework.boot.test.mock.mockito.MockBean
     private TransactionService transactionService;
 
@@ -70,12 +84,18 @@ class TransactionControllerTest {
         transactionResponse.setCreatedAt(LocalDateTime.now());
     }
 
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transactions WHERE sender_id >= 9001 OR receiver_id >= 9001");
+        jdbcTemplate.update("DELETE FROM users WHERE id >= 9001");
+    }
+
     @Test
     @WithMockUser(username = "testuser")
     void testInitiateTransferEndpointSuccess() throws Exception {
         // Given
         when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
-        when(transactionService.initiateTransfer(eq(1L), any(InitiateTransferRequest.class)))
+        when(transactionService.initiateTransfer(eq(1L), any(InitiateTransferRequest.class), isNull()))
                 .thenReturn(transactionResponse);
 
         // When & Then
@@ -87,7 +107,7 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.amount").value(100.00))
                 .andExpect(jsonPath("$.status").value("PENDING"));
 
-        verify(transactionService, times(1)).initiateTransfer(eq(1L), any(InitiateTransferRequest.class));
+        verify(transactionService, times(1)).initiateTransfer(eq(1L), any(InitiateTransferRequest.class), isNull());
     }
 
     @Test
@@ -98,7 +118,7 @@ class TransactionControllerTest {
                         .content(objectMapper.writeValueAsString(transferRequest)))
                 .andExpect(status().isUnauthorized());
 
-        verify(transactionService, never()).initiateTransfer(anyLong(), any(InitiateTransferRequest.class));
+        verify(transactionService, never()).initiateTransfer(anyLong(), any(InitiateTransferRequest.class), any());
     }
 
     @Test
@@ -194,6 +214,75 @@ class TransactionControllerTest {
         verify(transactionService, times(1)).getTransactionHistory(1L);
     }
 
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetHistoryPageFirstPage() throws Exception {
+        // Given
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 12, 0);
+        String nextCursor = new TransactionHistoryCursor(createdAt, 9L).encode();
+        when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
+        when(transactionService.getTransactionHistoryPage(1L, null, 1, TransactionHistoryWindow.ALL))
+                .thenReturn(new TransactionHistoryPage(List.of(historyEntry(9L, createdAt)), nextCursor));
+
+        // When & Then
+        mockMvc.perform(get("/api/transactions/history").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(9))
+                .andExpect(jsonPath("$.nextCursor").value(nextCursor));
+
+        verify(transactionService, never()).getTransactionHistory(anyLong());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetHistoryPageNextPageWithCursor() throws Exception {
+        // Given: el cursor devuelto por la página anterior se reenvía tal cual
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 12, 0);
+        String cursor = new TransactionHistoryCursor(createdAt, 9L).encode();
+        when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
+        when(transactionService.getTransactionHistoryPage(1L, cursor, 1, TransactionHistoryWindow.ALL))
+                .thenReturn(new TransactionHistoryPage(List.of(historyEntry(8L, createdAt.minusMinutes(1))), null));
+
+        // When & Then
+        mockMvc.perform(get("/api/transactions/history").param("limit", "1").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(8))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(transactionService, times(1)).getTransactionHistoryPage(1L, cursor, 1, TransactionHistoryWindow.ALL);
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetHistoryPageMalformedCursor() throws Exception {
+        // Given: el servicio decodifica el cursor, que falla con IllegalArgumentException
+        when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
+        when(transactionService.getTransactionHistoryPage(1L, "no-es-un-cursor", 20, TransactionHistoryWindow.ALL))
+                .thenAnswer(invocation -> TransactionHistoryCursor.decode(invocation.getArgument(1)));
+
+        // When & Then
+        mockMvc.perform(get("/api/transactions/history").param("limit", "20").param("cursor", "no-es-un-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cursor de historial inválido"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetHistoryPageLimitAboveMax() throws Exception {
+        // Given: el servicio recorta el límite a su máximo; el controlador no lo rechaza
+        when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
+        when(transactionService.getTransactionHistoryPage(1L, null, 5000, TransactionHistoryWindow.ALL))
+                .thenReturn(new TransactionHistoryPage(List.of(), null));
+
+        // When & Then
+        mockMvc.perform(get("/api/transactions/history").param("limit", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty());
+
+        verify(transactionService, times(1)).getTransactionHistoryPage(1L, null, 5000, TransactionHistoryWindow.ALL);
+    }
+
     @Test
     @WithMockUser(username = "testuser")
     void testGetTransactionByIdEndpointSuccess() throws Exception {
@@ -231,7 +320,7 @@ class TransactionControllerTest {
         // Given
         transactionResponse.setStatus("COMPLETED");
         when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
-        when(transactionService.transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("100.00")), eq("Test transfer")))
+        when(transactionService.transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("100.00")), eq("Test transfer"), isNull()))
                 .thenReturn(transactionResponse);
 
         // When & Then
@@ -241,7 +330,43 @@ class TransactionControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.status").value("COMPLETED"));
 
-        verify(transactionService, times(1)).transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("100.00")), eq("Test transfer"));
+        verify(transactionService, times(1)).transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("100.00")), eq("Test transfer"), isNull());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testTransferDirectEndpointPassesIdempotencyKey() throws Exception {
+        // Given
+        transactionResponse.setStatus("COMPLETED");
+        when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
+        when(transactionService.transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("100.00")), eq("Test transfer"), eq("retry-1")))
+                .thenReturn(transactionResponse);
+
+        // When & Then
+        mockMvc.perform(post("/api/transactions/transfer")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(1));
+
+        verify(transactionService, times(1)).transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("100.00")), eq("Test transfer"), eq("retry-1"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testTransferDirectEndpointIdempotencyKeyReusedWithOtherData() throws Exception {
+        // Given
+        when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
+        when(transactionService.transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("100.00")), eq("Test transfer"), eq("retry-1")))
+                .thenThrow(new com.flashybank.exception.IdempotencyKeyReusedException("La Idempotency-Key ya se usó con otros datos"));
+
+        // When & Then
+        mockMvc.perform(post("/api/transactions/transfer")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isUnprocessableEntity());
     }
 
     @Test
@@ -250,7 +375,7 @@ class TransactionControllerTest {
         // Given
         transferRequest.setReceiverUsername("testuser");
         when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
-        when(transactionService.transferDirect(eq(1L), eq("testuser"), any(), any()))
+        when(transactionService.transferDirect(eq(1L), eq("testuser"), any(), any(), isNull()))
                 .thenThrow(new IllegalArgumentException("No puedes transferirte dinero a ti mismo"));
 
         // When & Then
@@ -259,7 +384,7 @@ class TransactionControllerTest {
                         .content(objectMapper.writeValueAsString(transferRequest)))
                 .andExpect(status().isBadRequest());
 
-        verify(transactionService, times(1)).transferDirect(eq(1L), eq("testuser"), any(), any());
+        verify(transactionService, times(1)).transferDirect(eq(1L), eq("testuser"), any(), any(), isNull());
     }
 
     @Test
@@ -268,7 +393,7 @@ class TransactionControllerTest {
         // Given
         transferRequest.setAmount(new BigDecimal("2000.00"));
         when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
-        when(transactionService.transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("2000.00")), eq("Test transfer")))
+        when(transactionService.transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("2000.00")), eq("Test transfer"), isNull()))
                 .thenThrow(new com.flashybank.exception.InsufficientBalanceException("Saldo insuficiente"));
 
         // When & Then
@@ -277,7 +402,7 @@ class TransactionControllerTest {
                         .content(objectMapper.writeValueAsString(transferRequest)))
                 .andExpect(status().isBadRequest());
 
-        verify(transactionService, times(1)).transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("2000.00")), eq("Test transfer"));
+        verify(transactionService, times(1)).transferDirect(eq(1L), eq("receiver"), eq(new BigDecimal("2000.00")), eq("Test transfer"), isNull());
     }
 
     @Test
@@ -286,7 +411,7 @@ class TransactionControllerTest {
         // Given
         transferRequest.setReceiverUsername("nonexistent");
         when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
-        when(transactionService.transferDirect(eq(1L), eq("nonexistent"), any(), any()))
+        when(transactionService.transferDirect(eq(1L), eq("nonexistent"), any(), any(), isNull()))
                 .thenThrow(new com.flashybank.exception.UserNotFoundException("Usuario destinatario no encontrado"));
 
         // When & Then
@@ -295,7 +420,75 @@ class TransactionControllerTest {
                         .content(objectMapper.writeValueAsString(transferRequest)))
                 .andExpect(status().isNotFound());
 
-        verify(transactionService, times(1)).transferDirect(eq(1L), eq("nonexistent"), any(), any());
+        verify(transactionService, times(1)).transferDirect(eq(1L), eq("nonexistent"), any(), any(), isNull());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testExportNdjsonOnlyContainsAuthenticatedUserRows() throws Exception {
+        // Given
+        seedExportData();
+
+        // When
+        MvcResult started = mockMvc.perform(get("/api/transactions/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(600_000L, started.getRequest().getAsyncContext().getTimeout());
+
+        // Then
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("transacciones.ndjson")))
+                .andReturn();
+
+        // La transferencia entre receiver y other no pertenece a testuser
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(9102L, objectMapper.readTree(lines[0]).get("id").asLong());
+        assertEquals("RECEIVED", objectMapper.readTree(lines[0]).get("type").asText());
+        assertEquals("other", objectMapper.readTree(lines[0]).get("otherUser").asText());
+        assertEquals(9101L, objectMapper.readTree(lines[1]).get("id").asLong());
+        assertEquals("SENT", objectMapper.readTree(lines[1]).get("type").asText());
+        verify(transactionService, never()).getTransactionHistory(anyLong());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testExportCsvWritesHeaderAndEscapesValues() throws Exception {
+        // Given
+        seedExportData();
+
+        // When
+        MvcResult started = mockMvc.perform(get("/api/transactions/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("transacciones.csv")))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("id,other_user,amount,status,type,description,created_at", lines[0]);
+        assertTrue(lines[1].startsWith("9102,other,"));
+        assertTrue(lines[1].contains(",RECEIVED,Devolución,"));
+        assertTrue(lines[2].startsWith("9101,receiver,"));
+        assertTrue(lines[2].contains(",SENT,\"Pago, \"\"urgente\"\"\","));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testExportUnsupportedFormat() throws Exception {
+        // Given
+        when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
+
+        // When & Then
+        mockMvc.perform(get("/api/transactions/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -306,6 +499,33 @@ class TransactionControllerTest {
                         .content(objectMapper.writeValueAsString(transferRequest)))
                 .andExpect(status().isUnauthorized());
 
-        verify(transactionService, never()).transferDirect(anyLong(), anyString(), any(), anyString());
+        verify(transactionService, never()).transferDirect(anyLong(), anyString(), any(), anyString(), any());
+    }
+
+    // testuser (9001) envía a receiver (9002) y recibe de other (9003); receiver y other también se transfieren
+    private void seedExportData() {
+        testUser.setId(9001L);
+        when(userRepository.findByUsername("testuser")).thenReturn(java.util.Optional.of(testUser));
+        insertUser(9001L, "testuser");
+        insertUser(9002L, "receiver");
+        insertUser(9003L, "other");
+        insertTransaction(9101L, 9001L, 9002L, "Pago, \"urgente\"", LocalDateTime.of(2025, 3, 1, 10, 0));
+        insertTransaction(9102L, 9003L, 9001L, "Devolución", LocalDateTime.of(2025, 3, 1, 11, 0));
+        insertTransaction(9103L, 9002L, 9003L, "Ajena", LocalDateTime.of(2025, 3, 1, 12, 0));
+    }
+
+    private void insertUser(Long id, String username) {
+        jdbcTemplate.update("INSERT INTO users (id, username, password, balance, role, enabled, token_epoch, version, created_at) "
+                + "VALUES (?, ?, 'encoded_password', 1000.00, 'USER', TRUE, 0, 0, ?)", id, username, LocalDateTime.now());
+    }
+
+    private void insertTransaction(Long id, Long senderId, Long receiverId, String description, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO transactions (id, sender_id, receiver_id, amount, status, description, created_at) "
+                + "VALUES (?, ?, ?, 100.00, 'COMPLETED', ?, ?)", id, senderId, receiverId, description, createdAt);
+    }
+
+    private static TransactionHistoryResponse historyEntry(Long id, LocalDateTime createdAt) {
+        return new TransactionHistoryResponse(id, "receiver", new BigDecimal("100.00"), "COMPLETED", "SENT",
+                "Test transfer", createdAt);
     }
 }
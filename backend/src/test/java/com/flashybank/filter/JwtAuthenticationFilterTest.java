@@ -0,0 +1,175 @@
+package com.flashybank.filter;
+
+import com.flashybank.security.AccountEpochCache;
+import com.flashybank.security.AuthenticatedUser;
+import com.flashybank.service.TokenRevocationCache;
+import com.flashybank.service.UserDetailsServiceImpl;
+import com.flashybank.util.JwtClaims;
+import com.flashybank.util.JwtUtil;
+import io.jsonwebtoken.MalformedJwtException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Mock
+    private TokenRevocationCache tokenRevocationCache;
+
+    @Mock
+    private AccountEpochCache accountEpochCache;
+
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private MockFilterChain filterChain;
+    private JwtClaims claims;
+    private AuthenticatedUser userDetails;
+
+    @BeforeEach
+    void setUp() {
+        jwtAuthenticationFilter = new JwtAuthenticationFilter(
+                jwtUtil, userDetailsService, tokenRevocationCache, accountEpochCache, true);
+
+        request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer access_token");
+        response = new MockHttpServletResponse();
+        filterChain = new MockFilterChain();
+
+        claims = new JwtClaims("testuser", new Date(), new Date(System.currentTimeMillis() + 3600000),
+                "token-id", null, null, null, null);
+        userDetails = new AuthenticatedUser(1L, "testuser", "encoded_password", "USER", true, 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testValidTokenIsParsedOnce() throws Exception {
+        // Given
+        when(jwtUtil.parseToken("access_token")).thenReturn(claims);
+        when(tokenRevocationCache.isRevoked(any(byte[].class))).thenReturn(false);
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
+        when(jwtUtil.isTokenValid(claims, userDetails)).thenReturn(true);
+
+        // When
+        jwtAuthenticationFilter.doFilter(request, response, filterChain);
+
+        // Then
+        assertEquals("testuser", SecurityContextHolder.getContext().getAuthentication().getName());
+        assertSame(claims, request.getAttribute(JwtAuthenticationFilter.CLAIMS_ATTRIBUTE));
+        verify(jwtUtil, times(1)).parseToken("access_token");
+        verify(jwtUtil, never()).extractUsername(anyString());
+        assertNotNull(filterChain.getRequest());
+    }
+
+    @Test
+    void testAuthenticationIsAvailableToAsyncDispatch() throws Exception {
+        // Given
+        when(jwtUtil.parseToken("access_token")).thenReturn(claims);
+        when(tokenRevocationCache.isRevoked(any(byte[].class))).thenReturn(false);
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
+        when(jwtUtil.isTokenValid(claims, userDetails)).thenReturn(true);
+
+        // When
+        jwtAuthenticationFilter.doFilter(request, response, filterChain);
+        SecurityContextHolder.clearContext();
+
+        // Then: es lo que SecurityContextHolderFilter carga al volver a despachar la request
+        assertTrue(new RequestAttributeSecurityContextRepository().containsContext(request));
+        assertEquals("testuser", new RequestAttributeSecurityContextRepository()
+                .loadDeferredContext(request).get().getAuthentication().getName());
+    }
+
+    @Test
+    void testStatelessPrincipalSkipsUserLookup() throws Exception {
+        // Given
+        JwtClaims principalClaims = new JwtClaims("testuser", new Date(), new Date(System.currentTimeMillis() + 3600000),
+                "token-id", 1L, "USER", true, 0L);
+        when(jwtUtil.parseToken("access_token")).thenReturn(principalClaims);
+        when(tokenRevocationCache.isRevoked(any(byte[].class))).thenReturn(false);
+        when(accountEpochCache.isCurrent(1L, 0L)).thenReturn(true);
+        when(jwtUtil.isTokenValid(eq(principalClaims), any(UserDetails.class))).thenReturn(true);
+
+        // When
+        jwtAuthenticationFilter.doFilter(request, response, filterChain);
+
+        // Then
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        assertInstanceOf(AuthenticatedUser.class, principal);
+        assertEquals(1L, ((AuthenticatedUser) principal).getId());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void testStalePrincipalEpochIsRejected() throws Exception {
+        // Given
+        JwtClaims principalClaims = new JwtClaims("testuser", new Date(), new Date(System.currentTimeMillis() + 3600000),
+                "token-id", 1L, "USER", true, 0L);
+        when(jwtUtil.parseToken("access_token")).thenReturn(principalClaims);
+        when(tokenRevocationCache.isRevoked(any(byte[].class))).thenReturn(false);
+        when(accountEpochCache.isCurrent(1L, 0L)).thenReturn(false);
+
+        // When
+        jwtAuthenticationFilter.doFilter(request, response, filterChain);
+
+        // Then
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void testInvalidTokenContinuesUnauthenticated() throws Exception {
+        // Given
+        when(jwtUtil.parseToken("access_token")).thenThrow(new MalformedJwtException("bad token"));
+
+        // When
+        jwtAuthenticationFilter.doFilter(request, response, filterChain);
+
+        // Then
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+        assertNotNull(filterChain.getRequest());
+    }
+
+    @Test
+    void testRevokedTokenIsNotAuthenticated() throws Exception {
+        // Given
+        when(jwtUtil.parseToken("access_token")).thenReturn(claims);
+        when(tokenRevocationCache.isRevoked(any(byte[].class))).thenReturn(true);
+
+        // When
+        jwtAuthenticationFilter.doFilter(request, response, filterChain);
+
+        // Then
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+}
@@ -0,0 +1,131 @@
+package com.flashybank.ledger;
+
+import com.flashybank.exception.InsufficientBalanceException;
+import com.flashybank.model.Transaction;
+import com.flashybank.model.User;
+import com.flashybank.repository.TransactionRepository;
+import com.flashybank.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DatabaseLedgerEngineTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        alice = new User();
+        alice.setId(1L);
+        alice.setUsername("alice");
+        alice.setBalance(new BigDecimal("500.00"));
+
+        bob = new User();
+        bob.setId(2L);
+        bob.setUsername("bob");
+        bob.setBalance(new BigDecimal("0.00"));
+    }
+
+    @Test
+    void testPessimisticLocksAccountsInIdOrder() {
+        // Given
+        DatabaseLedgerEngine ledgerEngine = engine("pessimistic");
+        Transaction transaction = transaction(bob, alice, "0.00");
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(transaction);
+
+        // When
+        ledgerEngine.transfer(bob, alice, transaction);
+
+        // Then
+        InOrder inOrder = inOrder(entityManager);
+        inOrder.verify(entityManager).refresh(alice, LockModeType.PESSIMISTIC_WRITE);
+        inOrder.verify(entityManager).refresh(bob, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    @Test
+    void testAtomicDebitsAndCreditsWithoutReadingBalances() {
+        // Given
+        DatabaseLedgerEngine ledgerEngine = engine("atomic");
+        Transaction transaction = transaction(alice, bob, "100.00");
+        when(userRepository.debitIfSufficient(1L, new BigDecimal("100.00"))).thenReturn(1);
+        when(transactionRepository.save(transaction)).thenReturn(transaction);
+
+        // When
+        Transaction saved = ledgerEngine.transfer(alice, bob, transaction);
+
+        // Then
+        assertSame(transaction, saved);
+        verify(userRepository).credit(2L, new BigDecimal("100.00"));
+        verify(userRepository, never()).save(any(User.class));
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void testAtomicInsufficientBalanceWhenNoRowUpdated() {
+        // Given
+        DatabaseLedgerEngine ledgerEngine = engine("atomic");
+        Transaction transaction = transaction(alice, bob, "900.00");
+        when(userRepository.debitIfSufficient(1L, new BigDecimal("900.00"))).thenReturn(0);
+
+        // When & Then
+        InsufficientBalanceException ex = assertThrows(InsufficientBalanceException.class,
+                () -> ledgerEngine.transfer(alice, bob, transaction));
+
+        assertFalse(ex.getMessage().contains("saldo actual"));
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void testAtomicUpdatesRowsInIdOrder() {
+        // Given
+        DatabaseLedgerEngine ledgerEngine = engine("atomic");
+        bob.setBalance(new BigDecimal("100.00"));
+        Transaction transaction = transaction(bob, alice, "50.00");
+        when(userRepository.debitIfSufficient(2L, new BigDecimal("50.00"))).thenReturn(1);
+
+        // When
+        ledgerEngine.transfer(bob, alice, transaction);
+
+        // Then
+        InOrder inOrder = inOrder(userRepository);
+        inOrder.verify(userRepository).credit(1L, new BigDecimal("50.00"));
+        inOrder.verify(userRepository).debitIfSufficient(2L, new BigDecimal("50.00"));
+    }
+
+    private DatabaseLedgerEngine engine(String mode) {
+        return new DatabaseLedgerEngine(userRepository, transactionRepository, entityManager,
+                new SimpleMeterRegistry(), mode);
+    }
+
+    private Transaction transaction(User sender, User receiver, String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderId(sender.getId());
+        transaction.setReceiverId(receiver.getId());
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setStatus("COMPLETED");
+        return transaction;
+    }
+}
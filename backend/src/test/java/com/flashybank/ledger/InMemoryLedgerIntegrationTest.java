@@ -0,0 +1,75 @@
+package com.flashybank.ledger;
+
+import com.flashybank.dto.InitiateTransferRequest;
+import com.flashybank.dto.TransactionResponse;
+import com.flashybank.exception.InvalidTransactionStatusException;
+import com.flashybank.model.User;
+import com.flashybank.repository.TransactionRepository;
+import com.flashybank.repository.UserRepository;
+import com.flashybank.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Confirmación de una transferencia pendiente con ledger.engine=in-memory: el journal escribe el estado
+ * desde su propia conexión mientras la request sigue en su transacción. LOCK_TIMEOUT corto para que un
+ * bloqueo entre ambas falle en vez de colgar el test.
+ */
+@SpringBootTest(properties = {
+        "ledger.engine=in-memory",
+        "spring.datasource.url=jdbc:h2:mem:in-memory-ledger;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;MODE=PostgreSQL;LOCK_TIMEOUT=2000"
+})
+@ActiveProfiles("test")
+class InMemoryLedgerIntegrationTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void testConfirmPendingTransfer() {
+        // Given
+        User sender = user("inmemory_sender", "500.00");
+        User receiver = user("inmemory_receiver", "0.00");
+        InitiateTransferRequest request = new InitiateTransferRequest();
+        request.setReceiverUsername(receiver.getUsername());
+        request.setAmount(new BigDecimal("100.00"));
+        request.setDescription("Pendiente");
+        TransactionResponse pending = transactionService.initiateTransfer(sender.getId(), request, null);
+
+        // When
+        TransactionResponse confirmed = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> transactionService.confirmTransfer(pending.getId(), sender.getId()));
+
+        // Then
+        assertEquals("COMPLETED", confirmed.getStatus());
+        assertEquals("COMPLETED", transactionRepository.findById(pending.getId()).orElseThrow().getStatus());
+        assertEquals(0, new BigDecimal("400.00").compareTo(userRepository.findById(sender.getId()).orElseThrow().getBalance()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(userRepository.findById(receiver.getId()).orElseThrow().getBalance()));
+        assertEquals(0, new BigDecimal("400.00").compareTo(transactionService.getBalance(sender.getId())));
+
+        // Una segunda confirmación ve el estado ya persistido por el journal
+        assertThrows(InvalidTransactionStatusException.class,
+                () -> transactionService.confirmTransfer(pending.getId(), sender.getId()));
+    }
+
+    private User user(String username, String balance) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("encoded_password");
+        user.setBalance(new BigDecimal(balance));
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,207 @@
+package com.flashybank.ledger;
+
+import com.flashybank.exception.LedgerUnavailableException;
+import com.flashybank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Se ejecuta contra H2 real: lo que importa es cuándo hace commit el batch y qué queda persistido.
+ */
+class LedgerJournalTest {
+
+    private String url;
+    private JdbcTemplate database;
+    private LedgerJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        url = "jdbc:h2:mem:journal-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL;LOCK_TIMEOUT=10000";
+        database = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+        database.execute("CREATE SEQUENCE transactions_seq START WITH 1 INCREMENT BY 50");
+        database.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, balance NUMERIC(19, 2) NOT NULL, " +
+                "version BIGINT NOT NULL DEFAULT 0, updated_at TIMESTAMP)");
+        database.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, " +
+                "sender_id BIGINT NOT NULL REFERENCES users (id), receiver_id BIGINT NOT NULL REFERENCES users (id), " +
+                "amount NUMERIC(19, 2) NOT NULL, status VARCHAR(20) NOT NULL, description VARCHAR(255), " +
+                "created_at TIMESTAMP NOT NULL)");
+        database.update("INSERT INTO users (id, balance) VALUES (1, 500.00), (2, 0.00)");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (journal != null) {
+            journal.shutdown();
+        }
+        database.execute("SHUTDOWN");
+    }
+
+    @Test
+    void testBatchWrittenWhenSizeIsReached() throws Exception {
+        // Given: el límite de tiempo nunca se cumple durante el test
+        journal = started(3, 60_000, 100);
+        CompletableFuture<Transaction> first = journal.submit(transaction(1L, 2L, "10.00"), 1L, 2L);
+        CompletableFuture<Transaction> second = journal.submit(transaction(1L, 2L, "20.00"), 1L, 2L);
+        Thread.sleep(200);
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+
+        // When
+        CompletableFuture<Transaction> third = journal.submit(transaction(2L, 1L, "5.00"), 2L, 1L);
+
+        // Then
+        CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+        assertEquals(3, transactionCount());
+        assertEquals(0, new BigDecimal("475.00").compareTo(balance(1L)));
+        assertEquals(0, new BigDecimal("25.00").compareTo(balance(2L)));
+    }
+
+    @Test
+    void testBatchWrittenWhenDelayExpires() throws Exception {
+        // Given
+        journal = started(500, 20, 100);
+
+        // When
+        Transaction saved = journal.submit(transaction(1L, 2L, "10.00"), 1L, 2L).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertNotNull(saved.getId());
+        assertNotNull(saved.getCreatedAt());
+        assertEquals(1, transactionCount());
+    }
+
+    @Test
+    void testFutureCompletesOnlyAfterCommit() throws Exception {
+        // Given
+        journal = started(500, 20, 100);
+
+        // When: se consulta desde otra conexión apenas se completa el future
+        CompletableFuture<Integer> visibleRows = journal.submit(transaction(1L, 2L, "10.00"), 1L, 2L)
+                .thenApply(saved -> database.queryForObject(
+                        "SELECT COUNT(*) FROM transactions WHERE id = ?", Integer.class, saved.getId()));
+
+        // Then
+        assertEquals(1, visibleRows.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testFailedBatchFailsEveryFutureAndStopsJournal() throws Exception {
+        // Given: la segunda transferencia apunta a un usuario inexistente y viola la FK
+        journal = started(2, 60_000, 100);
+        CompletableFuture<Transaction> valid = journal.submit(transaction(1L, 2L, "10.00"), 1L, 2L);
+        CompletableFuture<Transaction> invalid = journal.submit(transaction(1L, 99L, "10.00"), 1L, 99L);
+
+        // When & Then
+        assertFailsWith(LedgerUnavailableException.class, valid);
+        assertFailsWith(LedgerUnavailableException.class, invalid);
+        assertTrue(journal.isFailed());
+        assertEquals(0, transactionCount());
+        assertEquals(0, new BigDecimal("500.00").compareTo(balance(1L)));
+
+        // Lo que llega después se rechaza sin encolarse
+        CompletableFuture<Transaction> later = journal.submit(transaction(1L, 2L, "1.00"), 1L, 2L);
+        assertTrue(later.isCompletedExceptionally());
+        assertEquals(0, journal.pendingEntries());
+    }
+
+    @Test
+    void testSubmitRejectedWhenQueueIsFull() throws Exception {
+        // Given: sin escritor, nada sale de la cola
+        journal = new LedgerJournal(dataSourceProperties(), 500, 5, 1);
+        CompletableFuture<Transaction> queued = journal.submit(transaction(1L, 2L, "10.00"), 1L, 2L);
+
+        // When
+        CompletableFuture<Transaction> rejected = journal.submit(transaction(1L, 2L, "10.00"), 1L, 2L);
+
+        // Then
+        assertFalse(queued.isDone());
+        assertFailsWith(LedgerUnavailableException.class, rejected);
+
+        // Al detenerse, lo que seguía en la cola tampoco queda esperando
+        journal.shutdown();
+        assertFailsWith(LedgerUnavailableException.class, queued);
+        journal = null;
+    }
+
+    @Test
+    void testShutdownDrainsPendingEntries() throws Exception {
+        // Given
+        journal = started(500, 300, 100);
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(journal.submit(transaction(1L, 2L, "1.00"), 1L, 2L));
+        }
+
+        // When
+        journal.shutdown();
+        journal = null;
+
+        // Then
+        for (CompletableFuture<Transaction> future : futures) {
+            assertNotNull(future.getNow(null).getId());
+        }
+        assertEquals(5, transactionCount());
+        assertEquals(0, new BigDecimal("495.00").compareTo(balance(1L)));
+    }
+
+    @Test
+    void testStartFailsWithoutSequence() throws InterruptedException {
+        // Given
+        database.execute("DROP SEQUENCE transactions_seq");
+        LedgerJournal withoutSequence = new LedgerJournal(dataSourceProperties(), 500, 5, 100);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, withoutSequence::start);
+        withoutSequence.shutdown();
+    }
+
+    private LedgerJournal started(int batchSize, long maxDelayMs, int queueCapacity) {
+        LedgerJournal started = new LedgerJournal(dataSourceProperties(), batchSize, maxDelayMs, queueCapacity);
+        started.start();
+        return started;
+    }
+
+    private DataSourceProperties dataSourceProperties() {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(url);
+        properties.setUsername("sa");
+        properties.setPassword("");
+        return properties;
+    }
+
+    private int transactionCount() {
+        return database.queryForObject("SELECT COUNT(*) FROM transactions", Integer.class);
+    }
+
+    private BigDecimal balance(Long userId) {
+        return database.queryForObject("SELECT balance FROM users WHERE id = ?", BigDecimal.class, userId);
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> type, CompletableFuture<?> future) {
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(type, ex.getCause());
+    }
+
+    private static Transaction transaction(Long senderId, Long receiverId, String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderId(senderId);
+        transaction.setReceiverId(receiverId);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setStatus("COMPLETED");
+        return transaction;
+    }
+}
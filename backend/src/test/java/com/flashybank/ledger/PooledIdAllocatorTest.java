@@ -0,0 +1,70 @@
+package com.flashybank.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PooledIdAllocatorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testAllocatesWholeBlockPerSequenceCall() {
+        // Given
+        when(jdbcTemplate.queryForObject("SELECT nextval('transactions_seq')", Long.class))
+                .thenReturn(101L, 151L);
+        PooledIdAllocator allocator = new PooledIdAllocator(jdbcTemplate, "transactions_seq", 50);
+
+        // When
+        long first = allocator.nextId();
+        for (int i = 0; i < 48; i++) {
+            allocator.nextId();
+        }
+        long lastOfBlock = allocator.nextId();
+        long firstOfNextBlock = allocator.nextId();
+
+        // Then
+        assertEquals(101L, first);
+        assertEquals(150L, lastOfBlock);
+        assertEquals(151L, firstOfNextBlock);
+        verify(jdbcTemplate, times(2)).queryForObject("SELECT nextval('transactions_seq')", Long.class);
+    }
+
+    @Test
+    void testBlockSizeReadFromSequenceIncrement() {
+        // Given
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("transactions_seq"))).thenReturn(List.of(20L));
+        when(jdbcTemplate.queryForObject("SELECT nextval('transactions_seq')", Long.class)).thenReturn(1L, 21L);
+        PooledIdAllocator allocator = PooledIdAllocator.forSequence(jdbcTemplate, "transactions_seq");
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            allocator.nextId();
+        }
+        long firstOfNextBlock = allocator.nextId();
+
+        // Then
+        assertEquals(21L, firstOfNextBlock);
+    }
+
+    @Test
+    void testMissingSequenceFailsFast() {
+        // Given
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("transactions_seq"))).thenReturn(List.of());
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> PooledIdAllocator.forSequence(jdbcTemplate, "transactions_seq"));
+    }
+}
@@ -0,0 +1,200 @@
+package com.flashybank.ledger;
+
+import com.flashybank.exception.InsufficientBalanceException;
+import com.flashybank.exception.InvalidTransactionStatusException;
+import com.flashybank.exception.LedgerUnavailableException;
+import com.flashybank.model.Transaction;
+import com.flashybank.model.User;
+import com.flashybank.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StripedLockLedgerEngineTest {
+
+    @Mock
+    private LedgerJournal journal;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private StripedLockLedgerEngine ledgerEngine;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        ledgerEngine = new StripedLockLedgerEngine(journal, transactionRepository, entityManager, 16, 200);
+
+        alice = new User();
+        alice.setId(1L);
+        alice.setUsername("alice");
+        alice.setBalance(new BigDecimal("500.00"));
+
+        bob = new User();
+        bob.setId(2L);
+        bob.setUsername("bob");
+        bob.setBalance(new BigDecimal("0.00"));
+    }
+
+    @Test
+    void testTransferMovesBalancesAndWaitsForJournal() {
+        // Given
+        Transaction transaction = transaction(alice, bob, "100.00");
+        when(journal.submit(any(Transaction.class), anyLong(), anyLong()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+
+        // When
+        Transaction saved = ledgerEngine.transfer(alice, bob, transaction);
+
+        // Then
+        assertSame(transaction, saved);
+        assertEquals(new BigDecimal("400.00"), ledgerEngine.getBalance(alice));
+        assertEquals(new BigDecimal("100.00"), ledgerEngine.getBalance(bob));
+        verify(journal).submit(transaction, 1L, 2L);
+    }
+
+    @Test
+    void testTransferInsufficientBalance() {
+        // When & Then
+        assertThrows(InsufficientBalanceException.class,
+                () -> ledgerEngine.transfer(alice, bob, transaction(alice, bob, "600.00")));
+
+        assertEquals(new BigDecimal("500.00"), ledgerEngine.getBalance(alice));
+        verify(journal, never()).submit(any(Transaction.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void testTransferRejectedByJournalLeavesBalancesUntouched() {
+        // Given
+        when(journal.submit(any(Transaction.class), anyLong(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new LedgerUnavailableException("saturado")));
+
+        // When & Then
+        assertThrows(LedgerUnavailableException.class,
+                () -> ledgerEngine.transfer(alice, bob, transaction(alice, bob, "100.00")));
+
+        assertEquals(0, new BigDecimal("500.00").compareTo(ledgerEngine.getBalance(alice)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(ledgerEngine.getBalance(bob)));
+    }
+
+    @Test
+    void testTransferTimeoutStopsJournal() {
+        // Given: un batch que nunca confirma
+        when(journal.submit(any(Transaction.class), anyLong(), anyLong())).thenReturn(new CompletableFuture<>());
+
+        // When & Then
+        assertThrows(LedgerUnavailableException.class,
+                () -> ledgerEngine.transfer(alice, bob, transaction(alice, bob, "100.00")));
+
+        verify(journal).fail(anyString(), any(TimeoutException.class));
+    }
+
+    @Test
+    void testBalanceReadFromDatabaseOnceJournalFailed() {
+        // Given
+        when(journal.submit(any(Transaction.class), anyLong(), anyLong()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        ledgerEngine.transfer(alice, bob, transaction(alice, bob, "100.00"));
+        when(journal.isFailed()).thenReturn(true);
+
+        // When
+        BigDecimal balance = ledgerEngine.getBalance(alice);
+
+        // Then
+        assertEquals(new BigDecimal("500.00"), balance);
+    }
+
+    @Test
+    void testLockTransactionClaimsUntilTransactionCompletes() {
+        // Given
+        Transaction pending = transaction(alice, bob, "100.00");
+        pending.setId(7L);
+        when(transactionRepository.findById(7L)).thenReturn(Optional.of(pending));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            Optional<Transaction> locked = ledgerEngine.lockTransaction(7L);
+
+            // Then: sin lock de fila, desacoplada y exclusiva hasta que termina la transacción
+            assertSame(pending, locked.orElseThrow());
+            verify(transactionRepository, never()).findByIdForUpdate(anyLong());
+            verify(entityManager).detach(pending);
+            assertThrows(InvalidTransactionStatusException.class, () -> ledgerEngine.lockTransaction(7L));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            assertTrue(ledgerEngine.lockTransaction(7L).isPresent());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testConcurrentTransfersDoNotLoseUpdates() throws Exception {
+        // Given
+        when(journal.submit(any(Transaction.class), anyLong(), anyLong()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When: 1000 transferencias de 1.00 contra un saldo de 500.00
+        for (int i = 0; i < 1000; i++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    ledgerEngine.transfer(alice, bob, transaction(alice, bob, "1.00"));
+                } catch (InsufficientBalanceException ex) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(500, rejected.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(ledgerEngine.getBalance(alice)));
+        assertEquals(0, new BigDecimal("500.00").compareTo(ledgerEngine.getBalance(bob)));
+    }
+
+    private Transaction transaction(User sender, User receiver, String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderId(sender.getId());
+        transaction.setReceiverId(receiver.getId());
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setStatus("COMPLETED");
+        return transaction;
+    }
+}
@@ -0,0 +1,87 @@
+package com.flashybank.ledger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferExecutorTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testOptimisticRetriesUntilSuccess() {
+        // Given
+        TransferExecutor executor = new TransferExecutor(transactionManager, meterRegistry, "optimistic", 3, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        String result = executor.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("conflicto");
+            }
+            return "ok";
+        });
+
+        // Then
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2.0, meterRegistry.get("ledger.optimistic.retries").counter().count());
+        assertEquals(0.0, meterRegistry.get("ledger.optimistic.exhausted").counter().count());
+    }
+
+    @Test
+    void testOptimisticGivesUpAfterMaxAttempts() {
+        // Given
+        TransferExecutor executor = new TransferExecutor(transactionManager, meterRegistry, "optimistic", 3, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When & Then
+        assertThrows(OptimisticLockingFailureException.class, () -> executor.execute(() -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockingFailureException("conflicto");
+        }));
+
+        assertEquals(3, calls.get());
+        assertEquals(1.0, meterRegistry.get("ledger.optimistic.exhausted").counter().count());
+    }
+
+    @Test
+    void testPessimisticDoesNotRetry() {
+        // Given
+        TransferExecutor executor = new TransferExecutor(transactionManager, meterRegistry, "pessimistic", 3, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When & Then
+        assertThrows(OptimisticLockingFailureException.class, () -> executor.execute(() -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockingFailureException("conflicto");
+        }));
+
+        assertEquals(1, calls.get());
+        assertEquals(1L, meterRegistry.get("ledger.transfer.duration").tag("mode", "pessimistic").timer().count());
+    }
+
+    @Test
+    void testUnknownModeIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TransferExecutor(transactionManager, meterRegistry, "eventual", 3, 0));
+    }
+}
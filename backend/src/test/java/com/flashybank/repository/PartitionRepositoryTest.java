@@ -0,0 +1,59 @@
+package com.flashybank.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class PartitionRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testParsesTimestampBounds() {
+        String bound = "FOR VALUES FROM ('2025-01-01 00:00:00') TO ('2025-02-01 00:00:00')";
+
+        assertEquals(LocalDateTime.of(2025, 1, 1, 0, 0), PartitionRepository.parseBound(PartitionRepository.LOWER_BOUND, bound));
+        assertEquals(LocalDateTime.of(2025, 2, 1, 0, 0), PartitionRepository.parseBound(PartitionRepository.UPPER_BOUND, bound));
+    }
+
+    @Test
+    void testUnboundedAndDefaultPartitions() {
+        String legacy = "FOR VALUES FROM (MINVALUE) TO ('2025-03-01 00:00:00+00')";
+
+        assertNull(PartitionRepository.parseBound(PartitionRepository.LOWER_BOUND, legacy));
+        assertEquals(LocalDateTime.of(2025, 3, 1, 0, 0), PartitionRepository.parseBound(PartitionRepository.UPPER_BOUND, legacy));
+        assertNull(PartitionRepository.parseBound(PartitionRepository.UPPER_BOUND, "DEFAULT"));
+    }
+
+    @Test
+    void testCreateRangePartitionQuotesIdentifiers() {
+        new PartitionRepository(jdbcTemplate).createRangePartition("transactions", "transactions_p202504",
+                LocalDateTime.of(2025, 4, 1, 0, 0), LocalDateTime.of(2025, 5, 1, 0, 0));
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS \"transactions_p202504\" PARTITION OF \"transactions\""
+                + " FOR VALUES FROM ('2025-04-01 00:00:00.0') TO ('2025-05-01 00:00:00.0')");
+    }
+
+    @Test
+    void testArchivePartitionDetachesThenMovesSchema() {
+        // When
+        new PartitionRepository(jdbcTemplate).archivePartition("transactions", "transactions_p202412", "archive");
+
+        // Then
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute("SET LOCAL lock_timeout = '5s'");
+        order.verify(jdbcTemplate).execute("ALTER TABLE \"transactions\" DETACH PARTITION \"transactions_p202412\"");
+        order.verify(jdbcTemplate).execute("ALTER TABLE \"transactions_p202412\" SET SCHEMA \"archive\"");
+    }
+}
@@ -1,6 +1,7 @@
 package com.flashybank.repository;
 
 import com.flashybank.model.TokenBlacklist;
+import com.flashybank.util.TokenFingerprints;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,13 +34,13 @@ class TokenBlacklistRepositoryTest {
 
         // Create active token (expires in the future)
         activeToken = new TokenBlacklist();
-        activeToken.setToken("active_token_123");
+        activeToken.setFingerprint(fingerprint("active_token_123"));
         activeToken.setRevokedAt(LocalDateTime.now());
         activeToken.setExpiresAt(LocalDateTime.now().plusHours(1));
 
         // Create expired token (expired in the past)
         expiredToken = new TokenBlacklist();
-        expiredToken.setToken("expired_token_456");
+        expiredToken.setFingerprint(fingerprint("expired_token_456"));
         expiredToken.setRevokedAt(LocalDateTime.now().minusDays(2));
         expiredToken.setExpiresAt(LocalDateTime.now().minusHours(1));
     }
@@ -52,7 +53,7 @@ class TokenBlacklistRepositoryTest {
         // Then
         assertNotNull(saved);
         assertNotNull(saved.getId());
-        assertEquals("active_token_123", saved.getToken());
+        assertArrayEquals(fingerprint("active_token_123"), saved.getFingerprint());
         assertNotNull(saved.getCreatedAt());
     }
 
@@ -63,11 +64,11 @@ class TokenBlacklistRepositoryTest {
         entityManager.flush();
 
         // When
-        Optional<TokenBlacklist> found = tokenBlacklistRepository.findByToken("active_token_123");
+        Optional<TokenBlacklist> found = tokenBlacklistRepository.findByFingerprint(fingerprint("active_token_123"));
 
         // Then
         assertTrue(found.isPresent());
-        assertEquals("active_token_123", found.get().getToken());
+        assertArrayEquals(fingerprint("active_token_123"), found.get().getFingerprint());
         assertNotNull(found.get().getRevokedAt());
     }
 
@@ -78,7 +79,7 @@ class TokenBlacklistRepositoryTest {
         entityManager.flush();
 
         // When
-        Optional<TokenBlacklist> found = tokenBlacklistRepository.findByToken("nonexistent_token");
+        Optional<TokenBlacklist> found = tokenBlacklistRepository.findByFingerprint(fingerprint("nonexistent_token"));
 
         // Then
         assertFalse(found.isPresent());
@@ -96,8 +97,32 @@ class TokenBlacklistRepositoryTest {
 
         // Then
         assertEquals(1, tokenBlacklistRepository.count());
-        assertTrue(tokenBlacklistRepository.findByToken("active_token_123").isPresent());
-        assertFalse(tokenBlacklistRepository.findByToken("expired_token_456").isPresent());
+        assertTrue(tokenBlacklistRepository.findByFingerprint(fingerprint("active_token_123")).isPresent());
+        assertFalse(tokenBlacklistRepository.findByFingerprint(fingerprint("expired_token_456")).isPresent());
+    }
+
+    @Test
+    void testDeleteExpiredChunkIsBoundedByLimit() {
+        // Given
+        entityManager.persist(activeToken);
+        for (int i = 0; i < 3; i++) {
+            TokenBlacklist expired = new TokenBlacklist();
+            expired.setFingerprint(fingerprint("expired_chunk_" + i));
+            expired.setRevokedAt(LocalDateTime.now().minusDays(2));
+            expired.setExpiresAt(LocalDateTime.now().minusHours(i + 1));
+            entityManager.persist(expired);
+        }
+        entityManager.flush();
+
+        // When
+        int firstChunk = tokenBlacklistRepository.deleteExpiredChunk(LocalDateTime.now(), 2);
+        int secondChunk = tokenBlacklistRepository.deleteExpiredChunk(LocalDateTime.now(), 2);
+
+        // Then
+        assertEquals(2, firstChunk);
+        assertEquals(1, secondChunk);
+        assertEquals(1, tokenBlacklistRepository.count());
+        assertTrue(tokenBlacklistRepository.existsByFingerprint(fingerprint("active_token_123")));
     }
 
     @Test
@@ -108,7 +133,7 @@ class TokenBlacklistRepositoryTest {
         entityManager.flush();
 
         // When
-        Optional<TokenBlacklist> foundActive = tokenBlacklistRepository.findByToken("active_token_123");
+        Optional<TokenBlacklist> foundActive = tokenBlacklistRepository.findByFingerprint(fingerprint("active_token_123"));
 
         // Then
         assertTrue(foundActive.isPresent());
@@ -123,7 +148,7 @@ class TokenBlacklistRepositoryTest {
         entityManager.flush();
 
         // When
-        Optional<TokenBlacklist> foundExpired = tokenBlacklistRepository.findByToken("expired_token_456");
+        Optional<TokenBlacklist> foundExpired = tokenBlacklistRepository.findByFingerprint(fingerprint("expired_token_456"));
 
         // Then
         assertTrue(foundExpired.isPresent());
@@ -134,12 +159,12 @@ class TokenBlacklistRepositoryTest {
     void testMultipleTokensWithSameExpiration() {
         // Given
         TokenBlacklist token1 = new TokenBlacklist();
-        token1.setToken("token1");
+        token1.setFingerprint(fingerprint("token1"));
         token1.setRevokedAt(LocalDateTime.now());
         token1.setExpiresAt(LocalDateTime.now().plusHours(1));
 
         TokenBlacklist token2 = new TokenBlacklist();
-        token2.setToken("token2");
+        token2.setFingerprint(fingerprint("token2"));
         token2.setRevokedAt(LocalDateTime.now());
         token2.setExpiresAt(LocalDateTime.now().plusHours(1));
 
@@ -153,4 +178,19 @@ class TokenBlacklistRepositoryTest {
         // Then
         assertEquals(2, count);
     }
+
+    @Test
+    void testExistsByFingerprint() {
+        // Given
+        entityManager.persist(activeToken);
+        entityManager.flush();
+
+        // When & Then
+        assertTrue(tokenBlacklistRepository.existsByFingerprint(fingerprint("active_token_123")));
+        assertFalse(tokenBlacklistRepository.existsByFingerprint(fingerprint("nonexistent_token")));
+    }
+
+    private byte[] fingerprint(String token) {
+        return TokenFingerprints.of((String) null, token);
+    }
 }
@@ -0,0 +1,106 @@
+package com.flashybank.repository;
+
+import com.flashybank.model.Transaction;
+import com.flashybank.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class TransactionRepositoryTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime START = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        alice = entityManager.persist(user("alice"));
+        bob = entityManager.persist(user("bob"));
+
+        // Tres enviadas por alice y dos recibidas desde bob, intercaladas en el tiempo
+        for (int i = 0; i < 5; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setSenderId(i % 2 == 0 ? alice.getId() : bob.getId());
+            transaction.setReceiverId(i % 2 == 0 ? bob.getId() : alice.getId());
+            transaction.setAmount(new BigDecimal("10.00"));
+            transaction.setStatus("COMPLETED");
+            transaction.setDescription("Transferencia " + i);
+            entityManager.persist(transaction);
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void testFindHistoryMergesSentAndReceived() {
+        // When
+        List<TransactionRepository.HistoryEntry> history =
+                transactionRepository.findHistoryBefore(alice.getId(), FROM, START, Long.MAX_VALUE, 10);
+
+        // Then
+        assertEquals(5, history.size());
+        assertEquals(3, history.stream().filter(h -> "SENT".equals(h.getType())).count());
+        assertTrue(history.stream()
+                .filter(h -> "RECEIVED".equals(h.getType()))
+                .allMatch(h -> "bob".equals(h.getOtherUser())));
+        assertTrue(history.stream()
+                .filter(h -> "SENT".equals(h.getType()))
+                .allMatch(h -> "bob".equals(h.getOtherUser())));
+    }
+
+    @Test
+    void testFindHistoryPagesByKeyset() {
+        // When
+        List<TransactionRepository.HistoryEntry> firstPage =
+                transactionRepository.findHistoryBefore(alice.getId(), FROM, START, Long.MAX_VALUE, 2);
+        TransactionRepository.HistoryEntry last = firstPage.get(firstPage.size() - 1);
+        List<TransactionRepository.HistoryEntry> rest =
+                transactionRepository.findHistoryBefore(alice.getId(), FROM, last.getCreatedAt(), last.getId(), 10);
+
+        // Then
+        assertEquals(2, firstPage.size());
+        assertEquals(3, rest.size());
+        assertTrue(rest.stream().noneMatch(h -> firstPage.stream().anyMatch(f -> f.getId().equals(h.getId()))));
+    }
+
+    @Test
+    void testFindHistoryRespectsDateWindow() {
+        // Given
+        LocalDateTime future = LocalDateTime.now().plusDays(1);
+
+        // When
+        List<TransactionRepository.HistoryEntry> history =
+                transactionRepository.findHistoryBefore(alice.getId(), future, START, Long.MAX_VALUE, 10);
+
+        // Then
+        assertTrue(history.isEmpty());
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("encoded_password");
+        user.setBalance(BigDecimal.valueOf(100.0));
+        user.setRole("USER");
+        user.setEnabled(true);
+        return user;
+    }
+}
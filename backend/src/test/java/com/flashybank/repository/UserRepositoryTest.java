@@ -73,4 +73,50 @@ class UserRepositoryTest {
         // Then
         assertFalse(found.isPresent());
     }
+
+    @Test
+    void shouldDebitOnlyWhenBalanceIsSufficient() {
+        // Given
+        User user = new User();
+        user.setUsername("payer");
+        user.setPassword("encoded_password");
+        user.setBalance(new BigDecimal("100.00"));
+        user.setRole("USER");
+        user.setEnabled(true);
+
+        Long id = entityManager.persistAndFlush(user).getId();
+
+        // When
+        int debited = userRepository.debitIfSufficient(id, new BigDecimal("60.00"));
+        int rejected = userRepository.debitIfSufficient(id, new BigDecimal("60.00"));
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, debited);
+        assertEquals(0, rejected);
+        User reloaded = entityManager.find(User.class, id);
+        assertEquals(0, new BigDecimal("40.00").compareTo(reloaded.getBalance()));
+        assertEquals(1L, reloaded.getVersion());
+    }
+
+    @Test
+    void shouldCreditBalance() {
+        // Given
+        User user = new User();
+        user.setUsername("payee");
+        user.setPassword("encoded_password");
+        user.setBalance(BigDecimal.ZERO);
+        user.setRole("USER");
+        user.setEnabled(true);
+
+        Long id = entityManager.persistAndFlush(user).getId();
+
+        // When
+        int credited = userRepository.credit(id, new BigDecimal("25.50"));
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, credited);
+        assertEquals(0, new BigDecimal("25.50").compareTo(entityManager.find(User.class, id).getBalance()));
+    }
 }
@@ -0,0 +1,100 @@
+package com.flashybank.security;
+
+import com.flashybank.repository.UserRepository;
+import com.flashybank.repository.UserRepository.AccountStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountEpochCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private AccountStatus status;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AccountEpochCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AccountEpochCache(userRepository, meterRegistry, 60000, 100);
+    }
+
+    @Test
+    void testSecondLookupIsServedFromCache() {
+        // Given
+        when(status.getTokenEpoch()).thenReturn(3L);
+        when(status.getEnabled()).thenReturn(true);
+        when(userRepository.findAccountStatusById(1L)).thenReturn(Optional.of(status));
+
+        // When
+        boolean first = cache.isCurrent(1L, 3L);
+        boolean second = cache.isCurrent(1L, 2L);
+
+        // Then
+        assertTrue(first);
+        assertFalse(second);
+        verify(userRepository, times(1)).findAccountStatusById(1L);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "accountEpochs").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testMissingAccountIsCachedAsDisabled() {
+        // Given
+        when(userRepository.findAccountStatusById(99L)).thenReturn(Optional.empty());
+
+        // When
+        cache.isCurrent(99L, 0L);
+        boolean current = cache.isCurrent(99L, -1L);
+
+        // Then
+        assertFalse(current);
+        verify(userRepository, times(1)).findAccountStatusById(99L);
+    }
+
+    @Test
+    void testAccountChangedEventReloadsStatus() {
+        // Given
+        when(status.getTokenEpoch()).thenReturn(0L, 1L);
+        when(status.getEnabled()).thenReturn(true);
+        when(userRepository.findAccountStatusById(1L)).thenReturn(Optional.of(status));
+        assertTrue(cache.isCurrent(1L, 0L));
+
+        // When
+        cache.onUserAccountChanged(new UserAccountChangedEvent(1L, "alice"));
+
+        // Then
+        assertFalse(cache.isCurrent(1L, 0L));
+        verify(userRepository, times(2)).findAccountStatusById(1L);
+    }
+
+    @Test
+    void testEntriesExpireAfterTtl() throws InterruptedException {
+        // Given
+        AccountEpochCache shortLived = new AccountEpochCache(userRepository, meterRegistry, 1, 100);
+        when(status.getTokenEpoch()).thenReturn(0L);
+        when(status.getEnabled()).thenReturn(true);
+        when(userRepository.findAccountStatusById(1L)).thenReturn(Optional.of(status));
+        shortLived.isCurrent(1L, 0L);
+
+        // When
+        Thread.sleep(20);
+        shortLived.isCurrent(1L, 0L);
+
+        // Then
+        verify(userRepository, times(2)).findAccountStatusById(1L);
+    }
+}
@@ -0,0 +1,119 @@
+package com.flashybank.security;
+
+import com.flashybank.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BoundedPasswordEncoder encoder;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (encoder != null) {
+            encoder.close();
+        }
+    }
+
+    @Test
+    void testEncodesAndMatchesOnHashingPool() {
+        // Given
+        encoder = new BoundedPasswordEncoder(4, 2, 4, 5000, meterRegistry);
+
+        // When
+        String encoded = encoder.encode("secret");
+
+        // Then
+        assertTrue(encoder.matches("secret", encoded));
+        assertFalse(encoder.matches("wrong", encoded));
+        assertEquals(2L, meterRegistry.get("password.hash.duration").tag("operation", "matches").timer().count());
+        assertEquals(1L, meterRegistry.get("password.hash.duration").tag("operation", "encode").timer().count());
+    }
+
+    @Test
+    void testFullQueueFailsFast() throws Exception {
+        // Given: un hilo ocupado y la cola (capacidad 1) llena
+        CountDownLatch started = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(blockingEncoder(started), 1, 1, 5000, meterRegistry);
+        CompletableFuture.runAsync(() -> encoder.encode("a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture.runAsync(() -> encoder.encode("b"));
+        waitForQueueDepth(1);
+
+        // When & Then
+        assertThrows(PasswordHashingUnavailableException.class, () -> encoder.encode("c"));
+        assertEquals(1.0, meterRegistry.get("password.hash.rejected").counter().count());
+    }
+
+    @Test
+    void testWaitLongerThanMaxWaitFails() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(blockingEncoder(started), 1, 4, 50, meterRegistry);
+
+        // When & Then
+        assertThrows(PasswordHashingUnavailableException.class, () -> encoder.matches("a", "hash"));
+        assertEquals(1.0, meterRegistry.get("password.hash.rejected").counter().count());
+    }
+
+    @Test
+    void testUpgradeEncodingWhenStrengthIncreases() {
+        // Given
+        String weakHash = new BCryptPasswordEncoder(4).encode("secret");
+        encoder = new BoundedPasswordEncoder(5, 1, 1, 5000, meterRegistry);
+
+        // When & Then
+        assertTrue(encoder.upgradeEncoding(weakHash));
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("secret")));
+    }
+
+    private PasswordEncoder blockingEncoder(CountDownLatch started) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                await();
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                await();
+                return true;
+            }
+
+            private void await() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private void waitForQueueDepth(int depth) throws InterruptedException {
+        for (int i = 0; i < 500 && meterRegistry.get("password.hash.queue.depth").gauge().value() < depth; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
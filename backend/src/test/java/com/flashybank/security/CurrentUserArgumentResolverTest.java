@@ -0,0 +1,94 @@
+package com.flashybank.security;
+
+import com.flashybank.exception.UserNotFoundException;
+import com.flashybank.model.User;
+import com.flashybank.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CurrentUserArgumentResolverTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private CurrentUserArgumentResolver resolver;
+    private NativeWebRequest webRequest;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new CurrentUserArgumentResolver(userRepository);
+        webRequest = new ServletWebRequest(new MockHttpServletRequest());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testPrincipalFromTokenIsUsedWithoutQuery() {
+        // Given
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "alice", "", "USER", true, 0L);
+        authenticate(principal);
+
+        // When
+        AuthenticatedUser resolved = resolver.resolveArgument(null, null, webRequest, null);
+
+        // Then
+        assertSame(principal, resolved);
+        verify(userRepository, never()).findByUsername(anyString());
+    }
+
+    @Test
+    void testOtherPrincipalIsLoadedOncePerRequest() {
+        // Given
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        authenticate(org.springframework.security.core.userdetails.User.withUsername("alice")
+                .password("").roles("USER").build());
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+
+        // When
+        AuthenticatedUser first = resolver.resolveArgument(null, null, webRequest, null);
+        AuthenticatedUser second = resolver.resolveArgument(null, null, webRequest, null);
+
+        // Then
+        assertEquals(7L, first.getId());
+        assertSame(first, second);
+        verify(userRepository, times(1)).findByUsername("alice");
+    }
+
+    @Test
+    void testUnknownUsernameThrowsUserNotFound() {
+        // Given
+        authenticate(org.springframework.security.core.userdetails.User.withUsername("ghost")
+                .password("").roles("USER").build());
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(UserNotFoundException.class, () -> resolver.resolveArgument(null, null, webRequest, null));
+    }
+
+    private void authenticate(Object principal) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
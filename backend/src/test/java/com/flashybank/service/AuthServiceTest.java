@@ -9,23 +9,30 @@ import com.flashybank.model.TokenBlacklist;
 import com.flashybank.model.User;
 import com.flashybank.repository.TokenBlacklistRepository;
 import com.flashybank.repository.UserRepository;
+import com.flashybank.security.AuthenticatedUser;
+import com.flashybank.util.JwtClaims;
 import com.flashybank.util.JwtUtil;
+import com.flashybank.util.TokenFingerprints;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.math.BigDecimal;
+import java.util.Date;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -49,11 +56,14 @@ class AuthServiceTest {
     @Mock
     private TokenBlacklistRepository tokenBlacklistRepository;
 
+    @Mock
+    private TokenRevocationCache tokenRevocationCache;
+
     @InjectMocks
     private AuthService authService;
 
     private User testUser;
-    private UserDetails userDetails;
+    private AuthenticatedUser userDetails;
     private LoginRequest loginRequest;
     private RegisterRequest registerRequest;
     private RefreshTokenRequest refreshTokenRequest;
@@ -69,11 +79,7 @@ class AuthServiceTest {
         testUser.setRole("USER");
         testUser.setEnabled(true);
 
-        userDetails = org.springframework.security.core.userdetails.User
-                .withUsername("testuser")
-                .password("encoded_password")
-                .authorities("ROLE_USER")
-                .build();
+        userDetails = new AuthenticatedUser(1L, "testuser", "encoded_password", "USER", true, 0L);
 
         loginRequest = new LoginRequest();
         loginRequest.setUsername("testuser");
@@ -93,12 +99,10 @@ class AuthServiceTest {
     @Test
     void testLoginSuccess() {
         // Given
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
         when(jwtUtil.generateToken(userDetails)).thenReturn("access_token");
         when(jwtUtil.generateRefreshToken(userDetails)).thenReturn("refresh_token");
-        // Authenticate doesn't return anything, it just throws if invalid
-        doAnswer(invocation -> null).when(authenticationManager).authenticate(any());
+        when(authenticationManager.authenticate(any()))
+                .thenReturn(new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
 
         // When
         LoginResponse response = authService.login(loginRequest);
@@ -111,7 +115,9 @@ class AuthServiceTest {
         assertEquals("USER", response.getRole());
 
         verify(authenticationManager, times(1)).authenticate(any());
-        verify(userDetailsService, times(1)).loadUserByUsername("testuser");
+        // El usuario se carga una sola vez, dentro de authenticate
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+        verify(userRepository, never()).findByUsername(anyString());
         verify(jwtUtil, times(1)).generateToken(userDetails);
         verify(jwtUtil, times(1)).generateRefreshToken(userDetails);
     }
@@ -152,9 +158,8 @@ class AuthServiceTest {
         // Given
         when(userRepository.existsByUsername("newuser")).thenReturn(false);
         when(passwordEncoder.encode("password123")).thenReturn("encoded_password");
-        when(userDetailsService.loadUserByUsername("newuser")).thenReturn(userDetails);
-        when(jwtUtil.generateToken(userDetails)).thenReturn("access_token");
-        when(jwtUtil.generateRefreshToken(userDetails)).thenReturn("refresh_token");
+        when(jwtUtil.generateToken(any(AuthenticatedUser.class))).thenReturn("access_token");
+        when(jwtUtil.generateRefreshToken(any(AuthenticatedUser.class))).thenReturn("refresh_token");
         when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
             User user = invocation.getArgument(0);
             user.setId(2L);
@@ -172,8 +177,9 @@ class AuthServiceTest {
         verify(userRepository, times(1)).existsByUsername("newuser");
         verify(passwordEncoder, times(1)).encode("password123");
         verify(userRepository, times(1)).save(any(User.class));
-        verify(jwtUtil, times(1)).generateToken(userDetails);
-        verify(jwtUtil, times(1)).generateRefreshToken(userDetails);
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+        assertEquals("newuser", response.getUsername());
+        assertEquals("USER", response.getRole());
     }
 
     @Test
@@ -194,12 +200,13 @@ class AuthServiceTest {
     @Test
     void testRefreshTokenSuccess() {
         // Given
-        when(jwtUtil.extractUsername("valid_refresh_token")).thenReturn("testuser");
+        JwtClaims refreshClaims = claims("refresh-jti", 604800000);
+        when(jwtUtil.parseToken("valid_refresh_token")).thenReturn(refreshClaims);
         when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
-        when(jwtUtil.isTokenValid("valid_refresh_token", userDetails)).thenReturn(true);
+        when(jwtUtil.isTokenValid(refreshClaims, userDetails)).thenReturn(true);
+        when(tokenRevocationCache.isRevoked(TokenFingerprints.of("refresh-jti", "valid_refresh_token"))).thenReturn(false);
         when(jwtUtil.generateToken(userDetails)).thenReturn("new_access_token");
         when(jwtUtil.generateRefreshToken(userDetails)).thenReturn("new_refresh_token");
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
 
         // When
         LoginResponse response = authService.refreshToken(refreshTokenRequest);
@@ -210,8 +217,9 @@ class AuthServiceTest {
         assertEquals("new_refresh_token", response.getRefreshToken());
         assertEquals("testuser", response.getUsername());
 
-        verify(jwtUtil, times(1)).extractUsername("valid_refresh_token");
-        verify(jwtUtil, times(1)).isTokenValid("valid_refresh_token", userDetails);
+        verify(jwtUtil, times(1)).parseToken("valid_refresh_token");
+        verify(jwtUtil, never()).extractUsername(anyString());
+        verify(jwtUtil, never()).isTokenValid(anyString(), any());
         verify(jwtUtil, times(1)).generateToken(userDetails);
         verify(jwtUtil, times(1)).generateRefreshToken(userDetails);
     }
@@ -219,9 +227,10 @@ class AuthServiceTest {
     @Test
     void testRefreshTokenInvalid() {
         // Given
-        when(jwtUtil.extractUsername("invalid_token")).thenReturn("testuser");
+        JwtClaims refreshClaims = claims("refresh-jti", 604800000);
+        when(jwtUtil.parseToken("invalid_token")).thenReturn(refreshClaims);
         when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
-        when(jwtUtil.isTokenValid("invalid_token", userDetails)).thenReturn(false);
+        when(jwtUtil.isTokenValid(refreshClaims, userDetails)).thenReturn(false);
 
         refreshTokenRequest.setRefreshToken("invalid_token");
 
@@ -230,42 +239,65 @@ class AuthServiceTest {
                 () -> authService.refreshToken(refreshTokenRequest));
 
         assertTrue(exception.getMessage().contains("inválido"));
-        verify(jwtUtil, times(1)).isTokenValid("invalid_token", userDetails);
+        verify(jwtUtil, times(1)).isTokenValid(refreshClaims, userDetails);
+        verify(jwtUtil, never()).generateToken(any());
+    }
+
+    @Test
+    void testRefreshTokenRevokedByLogout() {
+        // Given
+        JwtClaims refreshClaims = claims("refresh-jti", 604800000);
+        when(jwtUtil.parseToken("valid_refresh_token")).thenReturn(refreshClaims);
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
+        when(jwtUtil.isTokenValid(refreshClaims, userDetails)).thenReturn(true);
+        when(tokenRevocationCache.isRevoked(TokenFingerprints.of("refresh-jti", "valid_refresh_token"))).thenReturn(true);
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> authService.refreshToken(refreshTokenRequest));
+
+        assertTrue(exception.getMessage().contains("inválido"));
         verify(jwtUtil, never()).generateToken(any());
+        verify(jwtUtil, never()).generateRefreshToken(any());
     }
 
     @Test
     void testLogoutSuccess() {
         // Given
         String accessToken = "access_token";
-        when(jwtUtil.extractUsername("valid_refresh_token")).thenReturn("testuser");
+        JwtClaims accessClaims = claims("access-jti", 3600000);
+        JwtClaims refreshClaims = claims("refresh-jti", 604800000);
+        when(jwtUtil.parseToken(accessToken)).thenReturn(accessClaims);
+        when(jwtUtil.parseToken("valid_refresh_token")).thenReturn(refreshClaims);
         when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
-        when(jwtUtil.extractExpiration(accessToken)).thenReturn(new java.util.Date(System.currentTimeMillis() + 3600000));
-        when(jwtUtil.extractExpiration("valid_refresh_token")).thenReturn(new java.util.Date(System.currentTimeMillis() + 604800000));
-        when(jwtUtil.isTokenValid("valid_refresh_token", userDetails)).thenReturn(true);
+        when(jwtUtil.isTokenValid(refreshClaims, userDetails)).thenReturn(true);
         when(tokenBlacklistRepository.save(any(TokenBlacklist.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
         authService.logout(accessToken, logoutRequest);
 
         // Then
-        verify(tokenBlacklistRepository, times(2)).save(any(TokenBlacklist.class));
-        verify(jwtUtil, times(2)).extractExpiration(anyString());
+        ArgumentCaptor<TokenBlacklist> captor = ArgumentCaptor.forClass(TokenBlacklist.class);
+        verify(tokenBlacklistRepository, times(2)).save(captor.capture());
+        assertArrayEquals(TokenFingerprints.of("access-jti", accessToken), captor.getAllValues().get(0).getFingerprint());
+        assertArrayEquals(TokenFingerprints.of("refresh-jti", "valid_refresh_token"), captor.getAllValues().get(1).getFingerprint());
+        verify(jwtUtil, times(2)).parseToken(anyString());
+        verify(tokenRevocationCache, times(2)).revoke(any(byte[].class));
     }
 
     @Test
     void testLogoutInvalidRefreshToken() {
         // Given
         String accessToken = "access_token";
-        when(jwtUtil.extractUsername("invalid_token")).thenReturn("testuser");
-        when(jwtUtil.extractExpiration(accessToken)).thenReturn(new java.util.Date(System.currentTimeMillis() + 3600000));
-        when(jwtUtil.extractExpiration("invalid_token")).thenReturn(new java.util.Date(System.currentTimeMillis() + 604800000));
+        JwtClaims refreshClaims = claims("refresh-jti", 604800000);
+        when(jwtUtil.parseToken(accessToken)).thenReturn(claims("access-jti", 3600000));
+        when(jwtUtil.parseToken("invalid_token")).thenReturn(refreshClaims);
         when(tokenBlacklistRepository.save(any(TokenBlacklist.class))).thenAnswer(invocation -> {
             TokenBlacklist tb = invocation.getArgument(0);
             tb.setId(1L);
             return tb;
         });
-        lenient().when(jwtUtil.isTokenValid("invalid_token", any())).thenReturn(false);
+        lenient().when(jwtUtil.isTokenValid(eq(refreshClaims), any())).thenReturn(false);
 
         logoutRequest.setRefreshToken("invalid_token");
 
@@ -275,4 +307,9 @@ class AuthServiceTest {
         // Then
         verify(tokenBlacklistRepository, times(1)).save(any(TokenBlacklist.class));
     }
+
+    private JwtClaims claims(String tokenId, long expiresInMillis) {
+        return new JwtClaims("testuser", new Date(), new Date(System.currentTimeMillis() + expiresInMillis),
+                tokenId, 1L, "USER", true, 0L);
+    }
 }
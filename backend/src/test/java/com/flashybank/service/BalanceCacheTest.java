@@ -0,0 +1,94 @@
+package com.flashybank.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceCacheTest {
+
+    private final BalanceCache cache = new BalanceCache(new SimpleMeterRegistry(), 100, 60_000);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testSecondReadIsServedFromCache() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        cache.get(1L, () -> load(loads, "100.00"));
+        BigDecimal balance = cache.get(1L, () -> load(loads, "999.00"));
+
+        // Then
+        assertEquals(new BigDecimal("100.00"), balance);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testEvictionWaitsForCommit() {
+        // Given
+        cache.get(1L, () -> new BigDecimal("100.00"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        cache.evictAfterCommit(1L);
+        BigDecimal beforeCommit = cache.get(1L, () -> new BigDecimal("50.00"));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        BigDecimal afterCommit = cache.get(1L, () -> new BigDecimal("50.00"));
+
+        // Then
+        assertEquals(new BigDecimal("100.00"), beforeCommit);
+        assertEquals(new BigDecimal("50.00"), afterCommit);
+    }
+
+    @Test
+    void testReadOverlappingAnEvictionIsNotCached() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+
+        // When: la cuenta se invalida mientras se lee el saldo anterior
+        BigDecimal stale = cache.get(1L, () -> {
+            cache.evict(1L);
+            return load(loads, "100.00");
+        });
+        BigDecimal fresh = cache.get(1L, () -> load(loads, "50.00"));
+
+        // Then
+        assertEquals(new BigDecimal("100.00"), stale);
+        assertEquals(new BigDecimal("50.00"), fresh);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testEntriesExpireAfterTtl() throws InterruptedException {
+        // Given
+        BalanceCache shortLived = new BalanceCache(new SimpleMeterRegistry(), 100, 1);
+        AtomicInteger loads = new AtomicInteger();
+        shortLived.get(1L, () -> load(loads, "100.00"));
+
+        // When: un saldo cambiado en otro nodo nunca invalida esta cache
+        Thread.sleep(20);
+        BigDecimal balance = shortLived.get(1L, () -> load(loads, "50.00"));
+
+        // Then
+        assertEquals(new BigDecimal("50.00"), balance);
+        assertEquals(2, loads.get());
+    }
+
+    private static BigDecimal load(AtomicInteger loads, String balance) {
+        loads.incrementAndGet();
+        return new BigDecimal(balance);
+    }
+}
@@ -0,0 +1,67 @@
+package com.flashybank.service;
+
+import com.flashybank.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyKeyPurgeJobTest {
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyKeyPurgeJob job;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        job = new IdempotencyKeyPurgeJob(idempotencyKeyRepository, transactionManager, meterRegistry,
+                86_400_000, 100, 0);
+    }
+
+    @Test
+    void testPurgeDeletesInChunksUntilAPartialChunk() {
+        // Given
+        LocalDateTime cutoff = LocalDateTime.of(2025, 3, 1, 0, 0);
+        when(idempotencyKeyRepository.deleteCreatedBeforeChunk(cutoff, 100)).thenReturn(100, 40);
+
+        // When
+        long purged = job.purgeCreatedBefore(cutoff);
+
+        // Then
+        assertEquals(140, purged);
+        verify(idempotencyKeyRepository, times(2)).deleteCreatedBeforeChunk(cutoff, 100);
+        assertEquals(140.0, meterRegistry.get("idempotency_keys.purge.rows").counter().count());
+    }
+
+    @Test
+    void testScheduledPurgeUsesRetention() {
+        // Given
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(idempotencyKeyRepository.deleteCreatedBeforeChunk(cutoff.capture(), eq(100))).thenReturn(0);
+        LocalDateTime before = LocalDateTime.now().minusDays(1);
+
+        // When
+        job.purge();
+
+        // Then: solo se borran claves con más de 24 horas
+        assertFalse(cutoff.getValue().isBefore(before));
+        assertTrue(cutoff.getValue().isBefore(LocalDateTime.now().minusHours(23)));
+    }
+}
@@ -0,0 +1,104 @@
+package com.flashybank.service;
+
+import com.flashybank.exception.IdempotencyKeyReusedException;
+import com.flashybank.model.IdempotencyKey;
+import com.flashybank.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyKeyStoreTest {
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Test
+    void testStoredKeyIsCachedAfterFirstLookup() {
+        // Given
+        IdempotencyKeyStore store = new IdempotencyKeyStore(idempotencyKeyRepository, new SimpleMeterRegistry(), 10, 60_000);
+        when(idempotencyKeyRepository.findByUserIdAndKey(1L, "k")).thenReturn(Optional.of(record(42L, "h")));
+
+        // When
+        Optional<Long> first = store.findTransactionId(1L, "k", "h");
+        Optional<Long> second = store.findTransactionId(1L, "k", "h");
+
+        // Then
+        assertEquals(Optional.of(42L), first);
+        assertEquals(Optional.of(42L), second);
+        verify(idempotencyKeyRepository, times(1)).findByUserIdAndKey(1L, "k");
+    }
+
+    @Test
+    void testKeysAreScopedPerUser() {
+        // Given
+        IdempotencyKeyStore store = new IdempotencyKeyStore(idempotencyKeyRepository, new SimpleMeterRegistry(), 10, 60_000);
+        store.remember(1L, "k", "h", 42L);
+        when(idempotencyKeyRepository.findByUserIdAndKey(2L, "k")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertEquals(Optional.empty(), store.findTransactionId(2L, "k", "h"));
+    }
+
+    @Test
+    void testExpiredKeyIsReloadedFromDatabase() throws InterruptedException {
+        // Given
+        IdempotencyKeyStore store = new IdempotencyKeyStore(idempotencyKeyRepository, new SimpleMeterRegistry(), 10, 1);
+        store.remember(1L, "k", "h", 42L);
+        when(idempotencyKeyRepository.findByUserIdAndKey(1L, "k")).thenReturn(Optional.empty());
+
+        // When: pasado el plazo de retención la cache ya no responde por la clave
+        Thread.sleep(20);
+        Optional<Long> transactionId = store.findTransactionId(1L, "k", "h");
+
+        // Then
+        assertEquals(Optional.empty(), transactionId);
+        verify(idempotencyKeyRepository).findByUserIdAndKey(1L, "k");
+    }
+
+    @Test
+    void testKeyReusedWithDifferentRequestIsRejected() {
+        // Given
+        IdempotencyKeyStore store = new IdempotencyKeyStore(idempotencyKeyRepository, new SimpleMeterRegistry(), 10, 60_000);
+        String original = IdempotencyKeyStore.requestHash("transfer", "receiver", new BigDecimal("100.00"), "Pago");
+        String otherAmount = IdempotencyKeyStore.requestHash("transfer", "receiver", new BigDecimal("200.00"), "Pago");
+        store.remember(1L, "k", original, 42L);
+
+        // When & Then
+        assertThrows(IdempotencyKeyReusedException.class, () -> store.findTransactionId(1L, "k", otherAmount));
+        assertEquals(Optional.of(42L), store.findTransactionId(1L, "k", original));
+    }
+
+    @Test
+    void testKeyWithoutStoredHashIsReplayed() {
+        // Given: clave registrada antes de la columna request_hash
+        IdempotencyKeyStore store = new IdempotencyKeyStore(idempotencyKeyRepository, new SimpleMeterRegistry(), 10, 60_000);
+        when(idempotencyKeyRepository.findByUserIdAndKey(1L, "k")).thenReturn(Optional.of(record(42L, null)));
+
+        // When & Then
+        assertEquals(Optional.of(42L), store.findTransactionId(1L, "k", "h"));
+    }
+
+    @Test
+    void testRequestHashNormalizesAmountScale() {
+        assertEquals(IdempotencyKeyStore.requestHash("transfer", "receiver", new BigDecimal("100"), null),
+                IdempotencyKeyStore.requestHash("transfer", "receiver", new BigDecimal("100.00"), null));
+        assertNotEquals(IdempotencyKeyStore.requestHash("transfer", "ab", "c"),
+                IdempotencyKeyStore.requestHash("transfer", "a", "bc"));
+    }
+
+    private static IdempotencyKey record(Long transactionId, String requestHash) {
+        IdempotencyKey record = new IdempotencyKey();
+        record.setTransactionId(transactionId);
+        record.setRequestHash(requestHash);
+        return record;
+    }
+}
@@ -0,0 +1,69 @@
+package com.flashybank.service;
+
+import com.flashybank.repository.TokenBlacklistRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenBlacklistPurgeJobTest {
+
+    @Mock
+    private TokenBlacklistRepository tokenBlacklistRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LocalDateTime cutoff;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cutoff = LocalDateTime.of(2025, 3, 1, 0, 0);
+    }
+
+    @Test
+    void testPurgeDeletesInChunksUntilAPartialChunk() {
+        // Given
+        when(tokenBlacklistRepository.deleteExpiredChunk(cutoff, 100)).thenReturn(100, 100, 7);
+        TokenBlacklistPurgeJob job = job();
+
+        // When
+        long purged = job.purgeExpired(cutoff);
+
+        // Then
+        assertEquals(207, purged);
+        verify(tokenBlacklistRepository, times(3)).deleteExpiredChunk(cutoff, 100);
+        assertEquals(207.0, meterRegistry.get("token_blacklist.purge.rows").counter().count());
+    }
+
+    @Test
+    void testScheduledPurgeRecordsDuration() {
+        // Given
+        when(tokenBlacklistRepository.deleteExpiredChunk(any(LocalDateTime.class), eq(100))).thenReturn(3);
+        TokenBlacklistPurgeJob job = job();
+
+        // When
+        job.purge();
+
+        // Then
+        assertEquals(1, meterRegistry.get("token_blacklist.purge.duration").timer().count());
+        assertEquals(3.0, meterRegistry.get("token_blacklist.purge.rows").counter().count());
+    }
+
+    private TokenBlacklistPurgeJob job() {
+        return new TokenBlacklistPurgeJob(tokenBlacklistRepository, transactionManager, meterRegistry, 100, 0);
+    }
+}
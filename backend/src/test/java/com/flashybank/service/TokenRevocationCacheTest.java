@@ -0,0 +1,87 @@
+package com.flashybank.service;
+
+import com.flashybank.repository.TokenBlacklistRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationCacheTest {
+
+    private static final byte[] REVOKED = "revoked".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ACTIVE = "active".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private TokenBlacklistRepository tokenBlacklistRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TokenRevocationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new TokenRevocationCache(tokenBlacklistRepository, transactionManager, meterRegistry, 1_000, 0.001);
+    }
+
+    @Test
+    void testLookupsGoToDatabaseBeforeFirstRebuild() {
+        // Given: token revocado en una ejecución anterior; el filtro todavía está vacío
+        when(tokenBlacklistRepository.existsByFingerprint(REVOKED)).thenReturn(true);
+        when(tokenBlacklistRepository.existsByFingerprint(ACTIVE)).thenReturn(false);
+
+        // When & Then
+        assertTrue(cache.isRevoked(REVOKED));
+        assertFalse(cache.isRevoked(ACTIVE));
+        assertEquals(1.0, lookups("revoked"));
+        assertEquals(1.0, lookups("unfiltered"));
+    }
+
+    @Test
+    void testLookupsAreFilteredAfterRebuild() {
+        // Given
+        when(tokenBlacklistRepository.countByExpiresAtAfter(any(LocalDateTime.class))).thenReturn(1L);
+        when(tokenBlacklistRepository.streamFingerprintsByExpiresAtAfter(any(LocalDateTime.class)))
+                .thenAnswer(invocation -> Stream.of(REVOKED));
+        when(tokenBlacklistRepository.existsByFingerprint(REVOKED)).thenReturn(true);
+        cache.rebuild();
+
+        // When & Then
+        assertTrue(cache.isRevoked(REVOKED));
+        assertFalse(cache.isRevoked(ACTIVE));
+        verify(tokenBlacklistRepository, never()).existsByFingerprint(ACTIVE);
+        assertEquals(1.0, lookups("filtered"));
+    }
+
+    @Test
+    void testFailedRebuildKeepsDatabaseFallback() {
+        // Given
+        when(tokenBlacklistRepository.countByExpiresAtAfter(any(LocalDateTime.class)))
+                .thenThrow(new IllegalStateException("Base de datos no disponible"));
+        when(tokenBlacklistRepository.existsByFingerprint(REVOKED)).thenReturn(true);
+
+        // When
+        assertThrows(IllegalStateException.class, cache::rebuild);
+
+        // Then
+        assertTrue(cache.isRevoked(REVOKED));
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("token.revocation.lookups").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,115 @@
+package com.flashybank.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.flashybank.dto.TransactionHistoryWindow;
+import com.flashybank.repository.TransactionRepository;
+import com.flashybank.repository.TransactionRepository.HistoryEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionExportServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private ObjectMapper objectMapper;
+    private TransactionExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        exportService = new TransactionExportService(transactionRepository, objectMapper);
+    }
+
+    @Test
+    void testExportNdjsonWritesOneObjectPerLine() throws Exception {
+        // Given
+        List<HistoryEntry> entries = List.of(
+                entry(2L, "receiver", "SENT", "Pago"),
+                entry(1L, "receiver", "RECEIVED", "Devolución"));
+        when(transactionRepository.streamHistory(1L, TransactionHistoryWindow.ALL.from(), TransactionHistoryWindow.ALL.to())).thenReturn(entries.stream());
+
+        // When
+        String output = export(TransactionExportService.Format.NDJSON);
+
+        // Then
+        String[] lines = output.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(output.endsWith("\n"));
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(2L, first.get("id").asLong());
+        assertEquals("SENT", first.get("type").asText());
+        assertEquals("RECEIVED", objectMapper.readTree(lines[1]).get("type").asText());
+    }
+
+    @Test
+    void testExportCsvQuotesFieldsWhenNeeded() throws Exception {
+        // Given
+        List<HistoryEntry> entries = List.of(entry(5L, "receiver", "SENT", "Cena, \"postre\""));
+        when(transactionRepository.streamHistory(1L, TransactionHistoryWindow.ALL.from(), TransactionHistoryWindow.ALL.to())).thenReturn(entries.stream());
+
+        // When
+        String output = export(TransactionExportService.Format.CSV);
+
+        // Then
+        String[] lines = output.split("\n");
+        assertEquals("id,other_user,amount,status,type,description,created_at", lines[0]);
+        assertTrue(lines[1].startsWith("5,receiver,100.00,COMPLETED,SENT,\"Cena, \"\"postre\"\"\","));
+    }
+
+    @Test
+    void testExportClosesTheCursor() throws Exception {
+        // Given
+        boolean[] closed = {false};
+        when(transactionRepository.streamHistory(1L, TransactionHistoryWindow.ALL.from(), TransactionHistoryWindow.ALL.to()))
+                .thenReturn(Stream.<HistoryEntry>empty().onClose(() -> closed[0] = true));
+
+        // When
+        String output = export(TransactionExportService.Format.NDJSON);
+
+        // Then
+        assertEquals("", output);
+        assertTrue(closed[0]);
+    }
+
+    @Test
+    void testUnsupportedFormat() {
+        assertThrows(IllegalArgumentException.class, () -> TransactionExportService.Format.from("xml"));
+        assertEquals(TransactionExportService.Format.CSV, TransactionExportService.Format.from("csv"));
+    }
+
+    private String export(TransactionExportService.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(1L, format, TransactionHistoryWindow.ALL, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private HistoryEntry entry(Long id, String otherUser, String type, String description) {
+        HistoryEntry entry = mock(HistoryEntry.class);
+        lenient().when(entry.getId()).thenReturn(id);
+        lenient().when(entry.getOtherUser()).thenReturn(otherUser);
+        lenient().when(entry.getAmount()).thenReturn(new BigDecimal("100.00"));
+        lenient().when(entry.getStatus()).thenReturn("COMPLETED");
+        lenient().when(entry.getType()).thenReturn(type);
+        lenient().when(entry.getDescription()).thenReturn(description);
+        lenient().when(entry.getCreatedAt()).thenReturn(LocalDateTime.of(2025, 1, 15, 10, 30));
+        return entry;
+    }
+}
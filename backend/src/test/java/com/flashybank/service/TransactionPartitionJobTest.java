@@ -0,0 +1,95 @@
+package com.flashybank.service;
+
+import com.flashybank.repository.PartitionRepository;
+import com.flashybank.repository.PartitionRepository.RangePartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionPartitionJobTest {
+
+    @Mock
+    private PartitionRepository partitionRepository;
+
+    @Test
+    void testCreatesMissingFuturePartitionsOnly() {
+        // Given: la partición heredada cubre hasta marzo y abril ya existe
+        when(partitionRepository.findRangePartitions("transactions")).thenReturn(List.of(
+                new RangePartition("transactions_legacy", null, month(2025, 3)),
+                new RangePartition("transactions_p202503", month(2025, 3), month(2025, 4))));
+        TransactionPartitionJob job = new TransactionPartitionJob(partitionRepository, true, 2, 0, "archive");
+
+        // When
+        job.maintain(LocalDate.of(2025, 2, 15));
+
+        // Then
+        verify(partitionRepository).createRangePartition("transactions", "transactions_p202504", month(2025, 4), month(2025, 5));
+        verify(partitionRepository, times(1)).createRangePartition(anyString(), anyString(), any(), any());
+        verify(partitionRepository, never()).archivePartition(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testArchivesPartitionsOlderThanRetention() {
+        // Given
+        when(partitionRepository.findRangePartitions("transactions")).thenReturn(List.of(
+                new RangePartition("transactions_p202412", month(2024, 12), month(2025, 1)),
+                new RangePartition("transactions_p202501", month(2025, 1), month(2025, 2)),
+                new RangePartition("transactions_p202502", month(2025, 2), month(2025, 3)),
+                new RangePartition("transactions_p202503", month(2025, 3), month(2025, 4))));
+        TransactionPartitionJob job = new TransactionPartitionJob(partitionRepository, true, 1, 1, "archive");
+
+        // When
+        job.maintain(LocalDate.of(2025, 2, 15));
+
+        // Then
+        verify(partitionRepository).archivePartition("transactions", "transactions_p202412", "archive");
+        verify(partitionRepository, times(1)).archivePartition(eq("transactions"), anyString(), anyString());
+        verify(partitionRepository, never()).createRangePartition(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void testNeverArchivesLegacyPartition() {
+        // Given: la partición heredada termina antes del corte pero empieza en MINVALUE
+        when(partitionRepository.findRangePartitions("transactions")).thenReturn(List.of(
+                new RangePartition("transactions_legacy", null, month(2024, 12)),
+                new RangePartition("transactions_p202412", month(2024, 12), month(2025, 1)),
+                new RangePartition("transactions_p202501", month(2025, 1), month(2025, 2)),
+                new RangePartition("transactions_p202502", month(2025, 2), month(2025, 3)),
+                new RangePartition("transactions_p202503", month(2025, 3), month(2025, 4))));
+        TransactionPartitionJob job = new TransactionPartitionJob(partitionRepository, true, 1, 1, "archive");
+
+        // When
+        job.maintain(LocalDate.of(2025, 2, 15));
+
+        // Then
+        verify(partitionRepository, never()).archivePartition("transactions", "transactions_legacy", "archive");
+        verify(partitionRepository).archivePartition("transactions", "transactions_p202412", "archive");
+    }
+
+    @Test
+    void testDisabledJobDoesNothing() {
+        // Given
+        TransactionPartitionJob job = new TransactionPartitionJob(partitionRepository, false, 3, 0, "archive");
+
+        // When
+        job.maintain();
+
+        // Then
+        verifyNoInteractions(partitionRepository);
+    }
+
+    private static LocalDateTime month(int year, int month) {
+        return LocalDate.of(year, month, 1).atStartOfDay();
+    }
+}
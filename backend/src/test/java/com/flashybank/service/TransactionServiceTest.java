@@ -1,25 +1,36 @@
 package com.flashybank.service;
 
 import com.flashybank.dto.InitiateTransferRequest;
+import com.flashybank.dto.TransactionHistoryCursor;
+import com.flashybank.dto.TransactionHistoryPage;
 import com.flashybank.dto.TransactionHistoryResponse;
+import com.flashybank.dto.TransactionHistoryWindow;
 import com.flashybank.dto.TransactionResponse;
 import com.flashybank.exception.InsufficientBalanceException;
 import com.flashybank.exception.InvalidTransactionStatusException;
 import com.flashybank.exception.TransactionNotFoundException;
 import com.flashybank.exception.UnauthorizedTransactionException;
 import com.flashybank.exception.UserNotFoundException;
+import com.flashybank.ledger.DatabaseLedgerEngine;
+import com.flashybank.ledger.LedgerEngine;
+import com.flashybank.ledger.TransferExecutor;
 import com.flashybank.model.Transaction;
 import com.flashybank.model.User;
 import com.flashybank.repository.TransactionRepository;
 import com.flashybank.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -27,7 +38,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,7 +53,15 @@ class TransactionServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private IdempotencyKeyStore idempotencyKeyStore;
+
     private TransactionService transactionService;
 
     private User senderUser;
@@ -50,6 +72,17 @@ class TransactionServiceTest {
 
     @BeforeEach
     void setUp() {
+        transactionService = new TransactionService(
+                transactionRepository,
+                userRepository,
+                new DatabaseLedgerEngine(userRepository, transactionRepository, entityManager,
+                        new SimpleMeterRegistry(), "pessimistic"),
+                new TransferExecutor(transactionManager, new SimpleMeterRegistry(), "pessimistic", 3, 0),
+                idempotencyKeyStore,
+                new TransactionTemplate(transactionManager),
+                new BalanceCache(new SimpleMeterRegistry(), 100, 60_000)
+        );
+
         senderUser = new User();
         senderUser.setId(1L);
         senderUser.setUsername("sender");
@@ -67,7 +100,7 @@ class TransactionServiceTest {
         pendingTransaction = new Transaction();
         pendingTransaction.setId(1L);
         pendingTransaction.setSenderId(1L);
-        pendingTransaction.setReceiverUsername("receiver");
+        pendingTransaction.setReceiverId(2L);
         pendingTransaction.setAmount(new BigDecimal("100.00"));
         pendingTransaction.setDescription("Test transfer");
         pendingTransaction.setStatus("PENDING");
@@ -76,7 +109,7 @@ class TransactionServiceTest {
         completedTransaction = new Transaction();
         completedTransaction.setId(2L);
         completedTransaction.setSenderId(1L);
-        completedTransaction.setReceiverUsername("receiver");
+        completedTransaction.setReceiverId(2L);
         completedTransaction.setAmount(new BigDecimal("100.00"));
         completedTransaction.setDescription("Test transfer");
         completedTransaction.setStatus("COMPLETED");
@@ -96,7 +129,7 @@ class TransactionServiceTest {
         when(transactionRepository.save(any(Transaction.class))).thenReturn(pendingTransaction);
 
         // When
-        TransactionResponse response = transactionService.initiateTransfer(1L, transferRequest);
+        TransactionResponse response = transactionService.initiateTransfer(1L, transferRequest, null);
 
         // Then
         assertNotNull(response);
@@ -116,7 +149,7 @@ class TransactionServiceTest {
 
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
-                () -> transactionService.initiateTransfer(1L, transferRequest));
+                () -> transactionService.initiateTransfer(1L, transferRequest, null));
 
         assertTrue(exception.getMessage().contains("ti mismo"));
         verify(transactionRepository, never()).save(any(Transaction.class));
@@ -131,7 +164,7 @@ class TransactionServiceTest {
 
         // When & Then
         InsufficientBalanceException exception = assertThrows(InsufficientBalanceException.class,
-                () -> transactionService.initiateTransfer(1L, transferRequest));
+                () -> transactionService.initiateTransfer(1L, transferRequest, null));
 
         assertTrue(exception.getMessage().contains("Saldo insuficiente"));
         verify(transactionRepository, never()).save(any(Transaction.class));
@@ -146,7 +179,7 @@ class TransactionServiceTest {
 
         // When & Then
         assertThrows(UserNotFoundException.class,
-                () -> transactionService.initiateTransfer(1L, transferRequest));
+                () -> transactionService.initiateTransfer(1L, transferRequest, null));
 
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
@@ -154,9 +187,9 @@ class TransactionServiceTest {
     @Test
     void testConfirmTransferSuccess() {
         // Given
-        when(transactionRepository.findById(1L)).thenReturn(Optional.of(pendingTransaction));
+        when(transactionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(pendingTransaction));
         when(userRepository.findById(1L)).thenReturn(Optional.of(senderUser));
-        when(userRepository.findByUsername("receiver")).thenReturn(Optional.of(receiverUser));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(receiverUser));
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction t = invocation.getArgument(0);
             t.setStatus("COMPLETED");
@@ -178,7 +211,7 @@ class TransactionServiceTest {
     @Test
     void testConfirmTransferUnauthorized() {
         // Given
-        when(transactionRepository.findById(1L)).thenReturn(Optional.of(pendingTransaction));
+        when(transactionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(pendingTransaction));
 
         // When & Then
         UnauthorizedTransactionException exception = assertThrows(UnauthorizedTransactionException.class,
@@ -191,7 +224,7 @@ class TransactionServiceTest {
     @Test
     void testConfirmTransferInvalidStatus() {
         // Given
-        when(transactionRepository.findById(2L)).thenReturn(Optional.of(completedTransaction));
+        when(transactionRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(completedTransaction));
 
         // When & Then
         InvalidTransactionStatusException exception = assertThrows(InvalidTransactionStatusException.class,
@@ -205,7 +238,7 @@ class TransactionServiceTest {
     void testConfirmTransferAlreadyCompleted() {
         // Given
         completedTransaction.setStatus("COMPLETED");
-        when(transactionRepository.findById(2L)).thenReturn(Optional.of(completedTransaction));
+        when(transactionRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(completedTransaction));
 
         // When & Then
         InvalidTransactionStatusException exception = assertThrows(InvalidTransactionStatusException.class,
@@ -218,7 +251,7 @@ class TransactionServiceTest {
     @Test
     void testCancelTransferSuccess() {
         // Given
-        when(transactionRepository.findById(1L)).thenReturn(Optional.of(pendingTransaction));
+        when(transactionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(pendingTransaction));
         when(userRepository.findById(1L)).thenReturn(Optional.of(senderUser));
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction t = invocation.getArgument(0);
@@ -239,7 +272,7 @@ class TransactionServiceTest {
     @Test
     void testCancelTransferUnauthorized() {
         // Given
-        when(transactionRepository.findById(1L)).thenReturn(Optional.of(pendingTransaction));
+        when(transactionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(pendingTransaction));
 
         // When & Then
         UnauthorizedTransactionException exception = assertThrows(UnauthorizedTransactionException.class,
@@ -252,7 +285,7 @@ class TransactionServiceTest {
     @Test
     void testCancelTransferInvalidStatus() {
         // Given
-        when(transactionRepository.findById(2L)).thenReturn(Optional.of(completedTransaction));
+        when(transactionRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(completedTransaction));
 
         // When & Then
         InvalidTransactionStatusException exception = assertThrows(InvalidTransactionStatusException.class,
@@ -265,13 +298,12 @@ class TransactionServiceTest {
     @Test
     void testGetTransactionHistorySuccess() {
         // Given
-        when(userRepository.findById(1L)).thenReturn(Optional.of(senderUser));
-        when(transactionRepository.findBySenderIdOrderByCreatedAtDesc(1L))
-                .thenReturn(Arrays.asList(pendingTransaction));
-        when(transactionRepository.findByReceiverUsernameOrderByCreatedAtDesc("sender"))
-                .thenReturn(Arrays.asList(completedTransaction));
-        when(userRepository.findById(pendingTransaction.getSenderId())).thenReturn(Optional.of(senderUser));
-        when(userRepository.findById(completedTransaction.getSenderId())).thenReturn(Optional.of(senderUser));
+        LocalDateTime now = LocalDateTime.now();
+        List<TransactionRepository.HistoryEntry> entries = Arrays.asList(
+                historyEntry(2L, "receiver", "RECEIVED", now),
+                historyEntry(1L, "receiver", "SENT", now.minusMinutes(1)));
+        when(transactionRepository.findHistoryBefore(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class), anyLong(), anyInt()))
+                .thenReturn(entries);
 
         // When
         List<TransactionHistoryResponse> history = transactionService.getTransactionHistory(1L);
@@ -279,10 +311,92 @@ class TransactionServiceTest {
         // Then
         assertNotNull(history);
         assertEquals(2, history.size());
+        assertEquals("RECEIVED", history.get(0).getType());
+        assertEquals("SENT", history.get(1).getType());
+
+        verify(userRepository, never()).findById(anyLong());
+        verify(transactionRepository, times(1)).findHistoryBefore(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class), anyLong(), anyInt());
+        verify(transactionRepository, never()).findBySenderIdOrderByCreatedAtDesc(anyLong());
+    }
+
+    @Test
+    void testGetTransactionHistoryPageReturnsNextCursor() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        List<TransactionRepository.HistoryEntry> entries = Arrays.asList(
+                historyEntry(9L, "receiver", "SENT", now),
+                historyEntry(8L, "receiver", "RECEIVED", now.minusMinutes(1)),
+                historyEntry(7L, "receiver", "SENT", now.minusMinutes(2)));
+        when(transactionRepository.findHistoryBefore(1L, TransactionHistoryWindow.ALL.from(),
+                TransactionHistoryWindow.ALL.to(), Long.MIN_VALUE, 3))
+                .thenReturn(entries);
+
+        // When
+        TransactionHistoryPage page = transactionService.getTransactionHistoryPage(1L, null, 2, TransactionHistoryWindow.ALL);
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+        TransactionHistoryCursor next = TransactionHistoryCursor.decode(page.getNextCursor());
+        assertEquals(8L, next.id());
+        assertEquals(now.minusMinutes(1), next.createdAt());
+    }
+
+    @Test
+    void testGetTransactionHistoryPageLastPageHasNoCursor() {
+        // Given
+        LocalDateTime cursorTime = LocalDateTime.now();
+        String cursor = new TransactionHistoryCursor(cursorTime, 8L).encode();
+        List<TransactionRepository.HistoryEntry> entries = List.of(
+                historyEntry(7L, "receiver", "SENT", cursorTime.minusMinutes(1)));
+        when(transactionRepository.findHistoryBefore(1L, TransactionHistoryWindow.ALL.from(), cursorTime, 8L, 3))
+                .thenReturn(entries);
+
+        // When
+        TransactionHistoryPage page = transactionService.getTransactionHistoryPage(1L, cursor, 2, TransactionHistoryWindow.ALL);
+
+        // Then
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetTransactionHistoryPageCapsLimit() {
+        // Given
+        when(transactionRepository.findHistoryBefore(1L, TransactionHistoryWindow.ALL.from(),
+                TransactionHistoryWindow.ALL.to(), Long.MIN_VALUE, 101))
+                .thenReturn(List.of());
+
+        // When
+        TransactionHistoryPage page = transactionService.getTransactionHistoryPage(1L, null, 5000, TransactionHistoryWindow.ALL);
+
+        // Then: 100 filas como máximo más la que indica si hay otra página
+        assertTrue(page.getItems().isEmpty());
+        verify(transactionRepository).findHistoryBefore(1L, TransactionHistoryWindow.ALL.from(),
+                TransactionHistoryWindow.ALL.to(), Long.MIN_VALUE, 101);
+    }
+
+    @Test
+    void testGetTransactionHistoryPageInvalidCursor() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getTransactionHistoryPage(1L, "no-es-un-cursor", 20, TransactionHistoryWindow.ALL));
+    }
+
+    @Test
+    void testGetTransactionHistoryPageWithDateWindow() {
+        // Given
+        TransactionHistoryWindow window = TransactionHistoryWindow.of(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+        when(transactionRepository.findHistoryBefore(1L, LocalDateTime.of(2025, 1, 1, 0, 0),
+                LocalDateTime.of(2025, 2, 1, 0, 0), Long.MIN_VALUE, 21))
+                .thenReturn(List.of());
+
+        // When
+        TransactionHistoryPage page = transactionService.getTransactionHistoryPage(1L, null, 20, window);
 
-        verify(userRepository, atLeastOnce()).findById(1L);
-        verify(transactionRepository, times(1)).findBySenderIdOrderByCreatedAtDesc(1L);
-        verify(transactionRepository, times(1)).findByReceiverUsernameOrderByCreatedAtDesc("sender");
+        // Then
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
     }
 
     @Test
@@ -290,6 +404,7 @@ class TransactionServiceTest {
         // Given
         when(transactionRepository.findById(1L)).thenReturn(Optional.of(pendingTransaction));
         when(userRepository.findById(1L)).thenReturn(Optional.of(senderUser));
+        when(userRepository.findUsernameById(2L)).thenReturn(Optional.of("receiver"));
 
         // When
         TransactionResponse response = transactionService.getTransactionById(1L, 1L);
@@ -297,6 +412,7 @@ class TransactionServiceTest {
         // Then
         assertNotNull(response);
         assertEquals(1L, response.getId());
+        assertEquals("receiver", response.getReceiverUsername());
 
         verify(transactionRepository, times(1)).findById(1L);
     }
@@ -323,7 +439,7 @@ class TransactionServiceTest {
 
         // When
         TransactionResponse response = transactionService.transferDirect(
-                1L, "receiver", new BigDecimal("100.00"), "Direct transfer");
+                1L, "receiver", new BigDecimal("100.00"), "Direct transfer", null);
 
         // Then
         assertNotNull(response);
@@ -342,7 +458,7 @@ class TransactionServiceTest {
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
                 () -> transactionService.transferDirect(
-                        1L, "sender", new BigDecimal("100.00"), "Direct transfer"));
+                        1L, "sender", new BigDecimal("100.00"), "Direct transfer", null));
 
         assertTrue(exception.getMessage().contains("ti mismo"));
         verify(transactionRepository, never()).save(any(Transaction.class));
@@ -357,7 +473,7 @@ class TransactionServiceTest {
         // When & Then
         InsufficientBalanceException exception = assertThrows(InsufficientBalanceException.class,
                 () -> transactionService.transferDirect(
-                        1L, "receiver", new BigDecimal("2000.00"), "Direct transfer"));
+                        1L, "receiver", new BigDecimal("2000.00"), "Direct transfer", null));
 
         assertTrue(exception.getMessage().contains("Saldo insuficiente"));
         verify(transactionRepository, never()).save(any(Transaction.class));
@@ -372,8 +488,124 @@ class TransactionServiceTest {
         // When & Then
         assertThrows(UserNotFoundException.class,
                 () -> transactionService.transferDirect(
-                        1L, "nonexistent", new BigDecimal("100.00"), "Direct transfer"));
+                        1L, "nonexistent", new BigDecimal("100.00"), "Direct transfer", null));
+
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void testTransferDirectWithIdempotencyKeyRegistersKey() {
+        // Given
+        when(idempotencyKeyStore.findTransactionId(eq(1L), eq("retry-1"), anyString())).thenReturn(Optional.empty());
+        when(userRepository.findById(1L)).thenReturn(Optional.of(senderUser));
+        when(userRepository.findByUsername("receiver")).thenReturn(Optional.of(receiverUser));
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(completedTransaction);
+
+        // When
+        TransactionResponse response = transactionService.transferDirect(
+                1L, "receiver", new BigDecimal("100.00"), "Direct transfer", "retry-1");
+
+        // Then
+        assertEquals(2L, response.getId());
+        String requestHash = IdempotencyKeyStore.requestHash("transfer", "receiver", new BigDecimal("100.00"), "Direct transfer");
+        verify(idempotencyKeyStore).register(1L, "retry-1", requestHash, 2L);
+        verify(idempotencyKeyStore).remember(1L, "retry-1", requestHash, 2L);
+    }
+
+    @Test
+    void testTransferDirectReplaysKnownIdempotencyKey() {
+        // Given
+        when(idempotencyKeyStore.findTransactionId(eq(1L), eq("retry-1"), anyString())).thenReturn(Optional.of(2L));
+        when(transactionRepository.findById(2L)).thenReturn(Optional.of(completedTransaction));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(senderUser));
+        when(userRepository.findUsernameById(2L)).thenReturn(Optional.of("receiver"));
 
+        // When
+        TransactionResponse response = transactionService.transferDirect(
+                1L, "receiver", new BigDecimal("100.00"), "Direct transfer", "retry-1");
+
+        // Then
+        assertEquals(2L, response.getId());
+        assertEquals("COMPLETED", response.getStatus());
         verify(transactionRepository, never()).save(any(Transaction.class));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testInitiateTransferReplaysWinnerOfConcurrentDuplicate() {
+        // Given
+        when(idempotencyKeyStore.findTransactionId(eq(1L), eq("retry-1"), anyString()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(1L));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(senderUser));
+        when(userRepository.findByUsername("receiver")).thenReturn(Optional.of(receiverUser));
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(pendingTransaction);
+        doThrow(new DataIntegrityViolationException("uk_idempotency_keys_user_key"))
+                .when(idempotencyKeyStore).register(eq(1L), eq("retry-1"), anyString(), eq(1L));
+        when(transactionRepository.findById(1L)).thenReturn(Optional.of(pendingTransaction));
+        when(userRepository.findUsernameById(2L)).thenReturn(Optional.of("receiver"));
+
+        // When
+        TransactionResponse response = transactionService.initiateTransfer(1L, transferRequest, "retry-1");
+
+        // Then
+        assertEquals(1L, response.getId());
+        verify(transactionManager).rollback(any());
+        verify(idempotencyKeyStore, never()).remember(anyLong(), any(), any(), anyLong());
+    }
+
+    @Test
+    void testIdempotencyKeyRejectedWithInMemoryLedger() {
+        // Given
+        LedgerEngine inMemory = mock(LedgerEngine.class);
+        when(inMemory.persistsInCallerTransaction()).thenReturn(false);
+        TransactionService service = new TransactionService(transactionRepository, userRepository, inMemory,
+                new TransferExecutor(transactionManager, new SimpleMeterRegistry(), "pessimistic", 3, 0),
+                idempotencyKeyStore, new TransactionTemplate(transactionManager), new BalanceCache(new SimpleMeterRegistry(), 100, 60_000));
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> service.transferDirect(
+                1L, "receiver", new BigDecimal("100.00"), "Direct transfer", "retry-1"));
+        verify(inMemory, never()).transfer(any(), any(), any());
+        verifyNoInteractions(idempotencyKeyStore);
+    }
+
+    @Test
+    void testBlankIdempotencyKeyRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.initiateTransfer(1L, transferRequest, " "));
+    }
+
+    @Test
+    void testGetBalanceIsCachedUntilTransfer() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(senderUser));
+        when(userRepository.findByUsername("receiver")).thenReturn(Optional.of(receiverUser));
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(completedTransaction);
+
+        // When
+        BigDecimal first = transactionService.getBalance(1L);
+        BigDecimal cached = transactionService.getBalance(1L);
+        transactionService.transferDirect(1L, "receiver", new BigDecimal("100.00"), "Direct transfer", null);
+        BigDecimal afterTransfer = transactionService.getBalance(1L);
+
+        // Then
+        assertEquals(new BigDecimal("1000.00"), first);
+        assertEquals(first, cached);
+        assertEquals(new BigDecimal("900.00"), afterTransfer);
+        // Una carga para las dos primeras lecturas, otra en la transferencia y otra tras invalidar
+        verify(userRepository, times(3)).findById(1L);
+    }
+
+    private TransactionRepository.HistoryEntry historyEntry(Long id, String otherUser, String type, LocalDateTime createdAt) {
+        TransactionRepository.HistoryEntry entry = mock(TransactionRepository.HistoryEntry.class);
+        lenient().when(entry.getId()).thenReturn(id);
+        lenient().when(entry.getOtherUser()).thenReturn(otherUser);
+        lenient().when(entry.getAmount()).thenReturn(new BigDecimal("100.00"));
+        lenient().when(entry.getStatus()).thenReturn("COMPLETED");
+        lenient().when(entry.getType()).thenReturn(type);
+        lenient().when(entry.getDescription()).thenReturn("Test transfer");
+        lenient().when(entry.getCreatedAt()).thenReturn(createdAt);
+        return entry;
     }
 }
@@ -0,0 +1,150 @@
+package com.flashybank.service;
+
+import com.flashybank.model.User;
+import com.flashybank.repository.UserRepository;
+import com.flashybank.security.AuthenticatedUser;
+import com.flashybank.security.UserAccountChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserDetailsServiceImpl userDetailsService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userDetailsService = new UserDetailsServiceImpl(userRepository, eventPublisher, meterRegistry, 100, 60000);
+
+        user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        user.setPassword("encoded_password");
+        user.setRole("USER");
+        user.setEnabled(true);
+    }
+
+    @Test
+    void testSecondLoadIsServedFromCache() {
+        // Given
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+
+        // When
+        UserDetails first = userDetailsService.loadUserByUsername("alice");
+        UserDetails second = userDetailsService.loadUserByUsername("alice");
+
+        // Then
+        assertEquals(1L, ((AuthenticatedUser) second).getId());
+        assertEquals(first.getUsername(), second.getUsername());
+        verify(userRepository, times(1)).findByUsername("alice");
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "userDetails").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testErasingCredentialsDoesNotAffectCachedEntry() {
+        // Given
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+
+        // When
+        AuthenticatedUser first = (AuthenticatedUser) userDetailsService.loadUserByUsername("alice");
+        first.eraseCredentials();
+        UserDetails second = userDetailsService.loadUserByUsername("alice");
+
+        // Then
+        assertNotSame(first, second);
+        assertEquals("encoded_password", second.getPassword());
+    }
+
+    @Test
+    void testAccountChangedEventInvalidatesEntry() {
+        // Given
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        userDetailsService.loadUserByUsername("alice");
+
+        // When
+        userDetailsService.onUserAccountChanged(new UserAccountChangedEvent(1L, "alice"));
+        userDetailsService.loadUserByUsername("alice");
+
+        // Then
+        verify(userRepository, times(2)).findByUsername("alice");
+    }
+
+    @Test
+    void testMissingUserIsNotCached() {
+        // Given
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+
+    @Test
+    void testUpdatePasswordStoresNewHashAndPublishesEvent() {
+        // Given
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        UserDetails principal = userDetailsService.loadUserByUsername("alice");
+        when(userRepository.updatePassword("alice", "rehashed")).thenReturn(1);
+        user.setPassword("rehashed");
+
+        // When
+        UserDetails updated = userDetailsService.updatePassword(principal, "rehashed");
+
+        // Then
+        assertEquals("rehashed", updated.getPassword());
+        verify(eventPublisher).publishEvent(new UserAccountChangedEvent(1L, "alice"));
+    }
+
+    @Test
+    void testUpdatePasswordKeepsCacheUntilCommitEvent() {
+        // Given
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        UserDetails principal = userDetailsService.loadUserByUsername("alice");
+        when(userRepository.updatePassword("alice", "rehashed")).thenReturn(1);
+        user.setPassword("rehashed");
+
+        // When: antes del commit la cache conserva el hash anterior
+        userDetailsService.updatePassword(principal, "rehashed");
+        UserDetails beforeCommit = userDetailsService.loadUserByUsername("alice");
+        userDetailsService.onUserAccountChanged(new UserAccountChangedEvent(1L, "alice"));
+        UserDetails afterCommit = userDetailsService.loadUserByUsername("alice");
+
+        // Then
+        assertEquals("encoded_password", beforeCommit.getPassword());
+        assertEquals("rehashed", afterCommit.getPassword());
+    }
+
+    @Test
+    void testUpdatePasswordUnknownUser() {
+        // Given
+        when(userRepository.updatePassword("ghost", "rehashed")).thenReturn(0);
+        UserDetails principal = new AuthenticatedUser(9L, "ghost", "old", "USER", true, 0L);
+
+        // When & Then
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.updatePassword(principal, "rehashed"));
+        verifyNoInteractions(eventPublisher);
+    }
+}
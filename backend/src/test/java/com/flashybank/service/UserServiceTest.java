@@ -0,0 +1,86 @@
+package com.flashybank.service;
+
+import com.flashybank.exception.UsernameAlreadyInUseException;
+import com.flashybank.model.User;
+import com.flashybank.repository.UserRepository;
+import com.flashybank.security.UserAccountChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private UserService userService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        user.setTokenEpoch(3L);
+    }
+
+    @Test
+    void testUpdateUsernameBumpsEpochAndPublishesEvent() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.existsByUsername("alicia")).thenReturn(false);
+        when(userRepository.save(user)).thenReturn(user);
+
+        // When
+        User updated = userService.updateUsername(1L, "alicia");
+
+        // Then
+        assertEquals("alicia", updated.getUsername());
+        assertEquals(4L, updated.getTokenEpoch());
+        verify(eventPublisher).publishEvent(new UserAccountChangedEvent(1L, "alice"));
+    }
+
+    @Test
+    void testUpdateUsernameRejectsTakenUsername() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.existsByUsername("bob")).thenReturn(true);
+
+        // When & Then
+        assertThrows(UsernameAlreadyInUseException.class, () -> userService.updateUsername(1L, "bob"));
+
+        assertEquals("alice", user.getUsername());
+        verify(userRepository, never()).save(any(User.class));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testUpdateUsernameWithSameUsernameChangesNothing() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        // When
+        User updated = userService.updateUsername(1L, "alice");
+
+        // Then
+        assertEquals(3L, updated.getTokenEpoch());
+        verify(userRepository, never()).save(any(User.class));
+        verifyNoInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,50 @@
+package com.flashybank.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testInsertedKeysAreAlwaysFound() {
+        // Given
+        BloomFilter filter = new BloomFilter(10_000, 0.001);
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(key("revoked-" + i));
+        }
+
+        // Then
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(key("revoked-" + i)));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateStaysNearConfiguredRate() {
+        // Given
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(key("revoked-" + i));
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(key("active-" + i))) {
+                falsePositives++;
+            }
+        }
+
+        // Then: holgura de 3x sobre el 1% configurado
+        assertTrue(falsePositives < 300, "falsos positivos: " + falsePositives);
+    }
+
+    private byte[] key(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
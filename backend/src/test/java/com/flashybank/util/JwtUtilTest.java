@@ -0,0 +1,124 @@
+package com.flashybank.util;
+
+import com.flashybank.security.AuthenticatedUser;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "testSecretKeyForJwtTokenGenerationThatIsLongEnoughForHS256Algorithm";
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtUtil jwtUtil;
+    private UserDetails userDetails;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtUtil = new JwtUtil(SECRET, 3600000L, 604800000L, meterRegistry);
+        userDetails = User.withUsername("testuser")
+                .password("encoded_password")
+                .authorities("ROLE_USER")
+                .build();
+    }
+
+    @Test
+    void testParseTokenReturnsClaims() {
+        // Given
+        String token = jwtUtil.generateToken(userDetails);
+
+        // When
+        JwtClaims claims = jwtUtil.parseToken(token);
+
+        // Then
+        assertEquals("testuser", claims.username());
+        assertNotNull(claims.issuedAt());
+        assertNotNull(claims.tokenId());
+        assertFalse(claims.isExpired());
+        assertTrue(jwtUtil.isTokenValid(claims, userDetails));
+        assertTrue(jwtUtil.isTokenValid(token, userDetails));
+    }
+
+    @Test
+    void testAuthenticatedUserClaimsAreEmbedded() {
+        // Given
+        AuthenticatedUser user = new AuthenticatedUser(7L, "testuser", "encoded_password", "USER", true, 3L);
+        String token = jwtUtil.generateToken(user);
+
+        // When
+        JwtClaims claims = jwtUtil.parseToken(token);
+
+        // Then
+        assertTrue(claims.hasPrincipalClaims());
+        assertEquals(7L, claims.userId());
+        assertEquals("USER", claims.role());
+        assertTrue(claims.enabled());
+        assertEquals(3L, claims.tokenEpoch());
+    }
+
+    @Test
+    void testPlainUserDetailsHaveNoPrincipalClaims() {
+        // When
+        JwtClaims claims = jwtUtil.parseToken(jwtUtil.generateToken(userDetails));
+
+        // Then
+        assertFalse(claims.hasPrincipalClaims());
+    }
+
+    @Test
+    void testParseTokenRejectsForeignSignature() {
+        // Given
+        JwtUtil otherIssuer = new JwtUtil(SECRET.replace('t', 'x'), 3600000L, 604800000L, new SimpleMeterRegistry());
+        String token = otherIssuer.generateToken(userDetails);
+
+        // When & Then
+        assertThrows(JwtException.class, () -> jwtUtil.parseToken(token));
+    }
+
+    @Test
+    void testParseTokenRejectsExpiredToken() {
+        // Given
+        JwtUtil shortLived = new JwtUtil(SECRET, -1000L, -1000L, new SimpleMeterRegistry());
+        String token = shortLived.generateToken(userDetails);
+
+        // When & Then
+        assertThrows(JwtException.class, () -> jwtUtil.parseToken(token));
+    }
+
+    @Test
+    void testParseIsTimedByOutcome() {
+        // Given
+        String valid = jwtUtil.generateToken(userDetails);
+        String expired = new JwtUtil(SECRET, -1000L, -1000L, new SimpleMeterRegistry()).generateToken(userDetails);
+
+        // When
+        jwtUtil.parseToken(valid);
+        assertThrows(JwtException.class, () -> jwtUtil.parseToken(expired));
+        assertThrows(JwtException.class, () -> jwtUtil.parseToken("not-a-token"));
+
+        // Then
+        assertEquals(1, meterRegistry.get("jwt.parse").tag("outcome", "valid").timer().count());
+        assertEquals(1, meterRegistry.get("jwt.parse").tag("outcome", "expired").timer().count());
+        assertEquals(1, meterRegistry.get("jwt.parse").tag("outcome", "invalid").timer().count());
+        assertEquals(1, meterRegistry.get("jwt.sign").timer().count());
+    }
+
+    @Test
+    void testTokenOfAnotherUserIsNotValid() {
+        // Given
+        UserDetails otherUser = User.withUsername("otheruser")
+                .password("encoded_password")
+                .authorities("ROLE_USER")
+                .build();
+        String token = jwtUtil.generateToken(otherUser);
+
+        // When & Then
+        assertFalse(jwtUtil.isTokenValid(token, userDetails));
+    }
+}